@@ -1,7 +1,6 @@
 package com.easy.framework.core.domain.rpc.request;
 
 import com.easy.framework.core.exception.InvalidParamException;
-import org.apache.commons.lang3.Validate;
 
 import java.io.Serializable;
 
@@ -40,16 +39,26 @@ public abstract class BaseRequest implements Validator, Serializable {
     private String requestId;
 
     /**
-     * 参数校验方法
+     * 参数校验方法，校验不通过时抛{@link InvalidParamException}
      */
     public void doValidate() {
-        try {
-            Validate.notBlank(appCode, "appCode不能为空");
-            Validate.notBlank(operator, "operator不能为空");
-            Validate.notNull(requestId, "requestId不能为空");
-            this.validate();
-        } catch (Exception e) {
-            throw new InvalidParamException(e.getMessage());
+        ValidationResult result = new ValidationResult();
+        this.doValidate(result);
+        result.throwIfInvalid();
+    }
+
+    /**
+     * 参数校验方法，校验不通过时将原因添加到result中，不抛异常
+     * <p>
+     *     按顺序校验基础参数，遇到第一个失败即停止，基础参数校验通过后才执行子类的自定义校验
+     * </p>
+     * @param result
+     */
+    public void doValidate(ValidationResult result) {
+        if (result.notBlank(appCode, "appCode不能为空")
+                && result.notBlank(operator, "operator不能为空")
+                && result.notNull(requestId, "requestId不能为空")) {
+            this.validate(result);
         }
     }
 
@@ -1,8 +1,5 @@
 package com.easy.framework.core.domain.rpc.request;
 
-import com.easy.framework.core.exception.InvalidParamException;
-import org.apache.commons.lang3.Validate;
-
 import java.io.Serializable;
 
 /**
@@ -28,24 +25,23 @@ public abstract class PageRequest extends BaseRequest implements Serializable {
     private Integer pageSize;
 
     /**
-     * 参数校验方法
+     * 参数校验方法，校验不通过时将原因添加到result中，不抛异常
+     * @param result
      */
     @Override
-    public void doValidate() {
-        try {
-            super.doValidate();
-            Validate.notNull(pageNum, "pageNum不能为空");
-            Validate.notNull(pageSize, "pageSize不能为空");
-            if (pageNum <= 0) {
-                pageNum = 1;
-            }
-            // 这里500较大,如果业务要求比较小,可在子类validate方法中进行额外校验
-            if (pageSize > 500) {
-                throw new InvalidParamException("pageSize数量不能超过最大值" + 500);
-            }
-        } catch (Exception e) {
-            throw new InvalidParamException(e.getMessage());
+    public void doValidate(ValidationResult result) {
+        super.doValidate(result);
+        if (!result.isValid()) {
+            return;
+        }
+        if (!result.notNull(pageNum, "pageNum不能为空") || !result.notNull(pageSize, "pageSize不能为空")) {
+            return;
+        }
+        if (pageNum <= 0) {
+            pageNum = 1;
         }
+        // 这里500较大,如果业务要求比较小,可在子类validate方法中进行额外校验
+        result.check(pageSize <= 500, "pageSize数量不能超过最大值" + 500);
     }
 
     public Integer getPageNum() {
@@ -0,0 +1,134 @@
+package com.easy.framework.core.domain.rpc.request;
+
+import com.easy.framework.core.exception.InvalidParamException;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 参数校验结果，收集校验失败的原因
+ *
+ * <p>
+ *     配合{@link Validator#validate(ValidationResult)}使用，校验失败时只记录原因、不抛异常，
+ *     避免大量校验失败时反复创建异常和填充堆栈. 调用{@link ValidationResult#reset()}后可以重复使用，
+ *     非线程安全，每个线程单独创建
+ * </p>
+ *
+ * @author xiongzhao
+ * @date 2021/9/11
+ */
+public class ValidationResult {
+
+    /**
+     * 多个失败原因之间的分隔符
+     */
+    private static final String SEPARATOR = "；";
+
+    /**
+     * 失败原因，首次失败时创建
+     */
+    private List<String> errors;
+
+    /**
+     * 执行校验，失败时抛{@link InvalidParamException}
+     * @param validator
+     */
+    public static void validate(Validator validator) {
+        ValidationResult result = new ValidationResult();
+        validator.validate(result);
+        result.throwIfInvalid();
+    }
+
+    /**
+     * 添加失败原因
+     * @param message
+     * @return
+     */
+    public ValidationResult reject(String message) {
+        if (errors == null) {
+            errors = new ArrayList<>(2);
+        }
+        errors.add(message);
+        return this;
+    }
+
+    /**
+     * 条件不成立时添加失败原因
+     * @param expression
+     * @param message
+     * @return 条件是否成立
+     */
+    public boolean check(boolean expression, String message) {
+        if (!expression) {
+            reject(message);
+        }
+        return expression;
+    }
+
+    /**
+     * 校验对象不为空
+     * @param value
+     * @param message
+     * @return
+     */
+    public boolean notNull(Object value, String message) {
+        return check(value != null, message);
+    }
+
+    /**
+     * 校验字符串不为空白
+     * @param value
+     * @param message
+     * @return
+     */
+    public boolean notBlank(CharSequence value, String message) {
+        return check(StringUtils.isNotBlank(value), message);
+    }
+
+    /**
+     * 是否校验通过
+     * @return
+     */
+    public boolean isValid() {
+        return errors == null || errors.isEmpty();
+    }
+
+    /**
+     * 全部失败原因
+     * @return
+     */
+    public List<String> getErrors() {
+        return errors == null ? Collections.emptyList() : Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * 失败原因，多个原因用"；"拼接，校验通过时返回null
+     * @return
+     */
+    public String getMessage() {
+        if (isValid()) {
+            return null;
+        }
+        return errors.size() == 1 ? errors.get(0) : String.join(SEPARATOR, errors);
+    }
+
+    /**
+     * 校验不通过时抛{@link InvalidParamException}，参数错误不需要堆栈，抛出的异常不填充堆栈
+     */
+    public void throwIfInvalid() {
+        if (!isValid()) {
+            throw InvalidParamException.stackless(getMessage());
+        }
+    }
+
+    /**
+     * 清空失败原因，用于复用
+     */
+    public void reset() {
+        if (errors != null) {
+            errors.clear();
+        }
+    }
+}
@@ -15,4 +15,22 @@ public interface Validator {
      * 校验不通过需要抛{@link InvalidParamException}异常
      */
     void validate() throws InvalidParamException;
+
+    /**
+     * 不抛异常的自定义校验，校验不通过时将原因添加到result中
+     *
+     * <p>
+     *     默认调用{@link Validator#validate()}并将异常信息添加到result中. 校验失败较多的场景（如excel逐行校验）
+     *     子类可以覆盖该方法避免创建异常，此时{@link Validator#validate()}可以直接调用{@link ValidationResult#validate(Validator)}，
+     *     两个方法不能都委托给对方
+     * </p>
+     * @param result
+     */
+    default void validate(ValidationResult result) {
+        try {
+            this.validate();
+        } catch (Exception e) {
+            result.reject(e.getMessage());
+        }
+    }
 }
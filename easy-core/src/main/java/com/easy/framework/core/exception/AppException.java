@@ -3,22 +3,54 @@ package com.easy.framework.core.exception;
 import com.easy.framework.core.enums.EnumInterface;
 import com.easy.framework.core.enums.HttpResultEnum;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.IllegalFormatException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * 服务（业务）异常如“ 账号或密码错误 ”，该异常只做INFO级别的日志记录
  *
  * <p>
  * 自定义基类异常，它是一个运行时异常，ManagerException、ServiceException、MessageException等均继承该异常。
  * </p>
+ * <p>
+ * 构造方法创建的异常均包含完整堆栈. 参数校验等高频抛出、不需要堆栈的场景可以使用子类的stackless工厂方法，
+ * 不填充堆栈、不记录suppressed异常，按枚举创建的实例会被缓存复用，缓存实例不允许修改code.
+ * 使用(format, args)构造时立即格式化；stackless(format, args)创建的实例在首次获取message时才格式化
+ * </p>
  *
  * @author xiongzhao
  * @date 2020/06/11
  */
 public class AppException extends RuntimeException {
+
+    /**
+     * 按枚举缓存的无堆栈异常，key为异常类型
+     */
+    private static final Map<Class<?>, Map<EnumInterface<Integer>, AppException>> STACKLESS_CACHE = new ConcurrentHashMap<>();
+
     /**
      * 错误码 {@link HttpResultEnum}
      */
     private Integer code;
 
+    /**
+     * message的格式化参数，为空表示message不需要格式化
+     */
+    private transient Object[] args;
+
+    /**
+     * 格式化后的message
+     */
+    private volatile String formattedMessage;
+
+    /**
+     * 是否为缓存的共享实例
+     */
+    private boolean shared;
+
     /**
      * 默认构造
      */
@@ -60,11 +92,105 @@ public class AppException extends RuntimeException {
         this.code = HttpResultEnum.FAIL.getCode();
     }
 
+    /**
+     * 可以指定是否填充堆栈的构造方法，不填充堆栈时同时禁用suppressed异常
+     * @param code
+     * @param message
+     * @param cause
+     * @param writableStackTrace
+     */
+    protected AppException(Integer code, String message, Throwable cause, boolean writableStackTrace) {
+        super(message, cause, writableStackTrace, writableStackTrace);
+        this.code = code;
+    }
+
+    /**
+     * 子类不填充堆栈的构造方法，参数与{@link AppException#AppException(Integer, String, Throwable, boolean)}相同
+     * @param <E>
+     */
+    @FunctionalInterface
+    protected interface StacklessFactory<E extends AppException> {
+
+        E create(Integer code, String message, Throwable cause, boolean writableStackTrace);
+    }
+
+    /**
+     * 创建不填充堆栈的异常，code码默认500
+     * @param factory 子类的构造方法
+     * @param message
+     * @param <E>
+     * @return
+     */
+    protected static <E extends AppException> E stackless(StacklessFactory<E> factory, String message) {
+        return factory.create(HttpResultEnum.FAIL.getCode(), message, null, false);
+    }
+
+    /**
+     * 创建不填充堆栈的异常，code码默认500，message在首次获取时才格式化，参数按获取时的状态格式化，格式错误时返回原始的format
+     * @param factory 子类的构造方法
+     * @param format
+     * @param args
+     * @param <E>
+     * @return
+     */
+    protected static <E extends AppException> E stackless(StacklessFactory<E> factory, String format, Object[] args) {
+        E e = factory.create(HttpResultEnum.FAIL.getCode(), format, null, false);
+        ((AppException) e).args = args;
+        return e;
+    }
+
+    /**
+     * 获取不填充堆栈的异常，同一类型、同一枚举返回缓存的同一实例，缓存实例不允许修改code
+     * @param type 异常类型
+     * @param factory 子类的构造方法
+     * @param resultEnum
+     * @param <E>
+     * @return
+     */
+    protected static <E extends AppException> E stackless(Class<E> type, StacklessFactory<E> factory, EnumInterface<Integer> resultEnum) {
+        return type.cast(STACKLESS_CACHE.computeIfAbsent(type, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(resultEnum, k -> {
+                    E e = factory.create(k.getCode(), k.getMessage(), null, false);
+                    ((AppException) e).shared = true;
+                    return e;
+                }));
+    }
+
+    @Override
+    public String getMessage() {
+        if (args == null) {
+            return formattedMessage != null ? formattedMessage : super.getMessage();
+        }
+        String message = formattedMessage;
+        if (message == null) {
+            try {
+                message = String.format(super.getMessage(), args);
+            } catch (IllegalFormatException e) {
+                message = super.getMessage();
+            }
+            formattedMessage = message;
+        }
+        return message;
+    }
+
     public Integer getCode() {
         return code;
     }
 
     public void setCode(Integer code) {
+        if (shared) {
+            throw new UnsupportedOperationException("缓存的异常实例不允许修改code");
+        }
         this.code = code;
     }
+
+    /**
+     * 序列化前完成格式化，格式化参数不参与序列化
+     * @param out
+     * @throws IOException
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        getMessage();
+        out.defaultWriteObject();
+    }
 }
@@ -1,5 +1,7 @@
 package com.easy.framework.core.exception;
 
+import com.easy.framework.core.enums.EnumInterface;
+
 /**
  * 非法参数异常
  *
@@ -35,5 +37,29 @@ public class InvalidParamException extends AppException {
     public InvalidParamException(String message, Throwable cause) {
         super(message, cause);
     }
-}
 
+    protected InvalidParamException(Integer code, String message, Throwable cause, boolean writableStackTrace) {
+        super(code, message, cause, writableStackTrace);
+    }
+
+    /**
+     * @see AppException#stackless(StacklessFactory, String)
+     */
+    public static InvalidParamException stackless(String message) {
+        return stackless(InvalidParamException::new, message);
+    }
+
+    /**
+     * @see AppException#stackless(StacklessFactory, String, Object[])
+     */
+    public static InvalidParamException stackless(String format, Object ...args) {
+        return stackless(InvalidParamException::new, format, args);
+    }
+
+    /**
+     * @see AppException#stackless(Class, StacklessFactory, EnumInterface)
+     */
+    public static InvalidParamException stackless(EnumInterface<Integer> resultEnum) {
+        return stackless(InvalidParamException.class, InvalidParamException::new, resultEnum);
+    }
+}
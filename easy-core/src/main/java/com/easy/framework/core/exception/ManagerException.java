@@ -1,5 +1,6 @@
 package com.easy.framework.core.exception;
 
+import com.easy.framework.core.enums.EnumInterface;
 import com.easy.framework.core.enums.HttpResultEnum;
 
 /**
@@ -36,5 +37,29 @@ public class ManagerException extends AppException {
     public ManagerException(String format, Object ...args) {
         super(format, args);
     }
-}
 
+    protected ManagerException(Integer code, String message, Throwable cause, boolean writableStackTrace) {
+        super(code, message, cause, writableStackTrace);
+    }
+
+    /**
+     * @see AppException#stackless(StacklessFactory, String)
+     */
+    public static ManagerException stackless(String message) {
+        return stackless(ManagerException::new, message);
+    }
+
+    /**
+     * @see AppException#stackless(StacklessFactory, String, Object[])
+     */
+    public static ManagerException stackless(String format, Object ...args) {
+        return stackless(ManagerException::new, format, args);
+    }
+
+    /**
+     * @see AppException#stackless(Class, StacklessFactory, EnumInterface)
+     */
+    public static ManagerException stackless(EnumInterface<Integer> resultEnum) {
+        return stackless(ManagerException.class, ManagerException::new, resultEnum);
+    }
+}
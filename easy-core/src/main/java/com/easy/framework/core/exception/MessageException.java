@@ -1,5 +1,6 @@
 package com.easy.framework.core.exception;
 
+import com.easy.framework.core.enums.EnumInterface;
 import com.easy.framework.core.enums.HttpResultEnum;
 
 /**
@@ -36,5 +37,29 @@ public class MessageException extends AppException {
     public MessageException(String format, Object ...args) {
         super(format, args);
     }
-}
 
+    protected MessageException(Integer code, String message, Throwable cause, boolean writableStackTrace) {
+        super(code, message, cause, writableStackTrace);
+    }
+
+    /**
+     * @see AppException#stackless(StacklessFactory, String)
+     */
+    public static MessageException stackless(String message) {
+        return stackless(MessageException::new, message);
+    }
+
+    /**
+     * @see AppException#stackless(StacklessFactory, String, Object[])
+     */
+    public static MessageException stackless(String format, Object ...args) {
+        return stackless(MessageException::new, format, args);
+    }
+
+    /**
+     * @see AppException#stackless(Class, StacklessFactory, EnumInterface)
+     */
+    public static MessageException stackless(EnumInterface<Integer> resultEnum) {
+        return stackless(MessageException.class, MessageException::new, resultEnum);
+    }
+}
@@ -1,5 +1,6 @@
 package com.easy.framework.core.exception;
 
+import com.easy.framework.core.enums.EnumInterface;
 import com.easy.framework.core.enums.HttpResultEnum;
 
 /**
@@ -36,5 +37,29 @@ public class ServiceException extends AppException {
     public ServiceException(String format, Object ...args) {
         super(format, args);
     }
-}
 
+    protected ServiceException(Integer code, String message, Throwable cause, boolean writableStackTrace) {
+        super(code, message, cause, writableStackTrace);
+    }
+
+    /**
+     * @see AppException#stackless(StacklessFactory, String)
+     */
+    public static ServiceException stackless(String message) {
+        return stackless(ServiceException::new, message);
+    }
+
+    /**
+     * @see AppException#stackless(StacklessFactory, String, Object[])
+     */
+    public static ServiceException stackless(String format, Object ...args) {
+        return stackless(ServiceException::new, format, args);
+    }
+
+    /**
+     * @see AppException#stackless(Class, StacklessFactory, EnumInterface)
+     */
+    public static ServiceException stackless(EnumInterface<Integer> resultEnum) {
+        return stackless(ServiceException.class, ServiceException::new, resultEnum);
+    }
+}
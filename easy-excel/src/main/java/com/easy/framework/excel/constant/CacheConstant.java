@@ -22,5 +22,55 @@ public class CacheConstant {
      * 上传excel进度
      */
     public static final String UPLOAD_EXCEL_PROGRESS = "upload_excel_progress";
+
+    /**
+     * 上传excel任务取消标记
+     */
+    public static final String UPLOAD_EXCEL_CANCEL = "upload_excel_cancel";
+
+    /**
+     * 上传excel任务检查点
+     */
+    public static final String UPLOAD_EXCEL_CHECKPOINT = "upload_excel_checkpoint";
+
+    /**
+     * 上传excel任务检查点的失败列表
+     */
+    public static final String UPLOAD_EXCEL_CHECKPOINT_FAILS = "upload_excel_checkpoint_fails";
+
+    /**
+     * 上传excel任务检查点的业务处理数据行
+     */
+    public static final String UPLOAD_EXCEL_CHECKPOINT_ROWS = "upload_excel_checkpoint_rows";
+
+    /**
+     * 上传excel任务心跳，执行任务的节点定时刷新
+     */
+    public static final String UPLOAD_EXCEL_HEARTBEAT = "upload_excel_heartbeat";
+
+    /**
+     * 检查点超时时间：1天
+     */
+    public static final int CHECKPOINT_EXPIRE = 60 * 60 * 24;
+
+    /**
+     * 已导入数据布隆过滤器key前缀
+     */
+    public static final String UPLOAD_EXCEL_IMPORTED = "upload_excel_imported:";
+
+    /**
+     * 已导入数据布隆过滤器超时时间：30天
+     */
+    public static final int IMPORTED_FILTER_EXPIRE = 60 * 60 * 24 * 30;
+
+    /**
+     * 已导入数据布隆过滤器初始容量
+     */
+    public static final long IMPORTED_FILTER_CAPACITY = 1000000L;
+
+    /**
+     * 已导入数据布隆过滤器误判率
+     */
+    public static final double IMPORTED_FILTER_FPP = 0.001;
 }
 
@@ -68,6 +68,11 @@ public class Task {
      */
     private String message;
 
+    /**
+     * 业务处理统计
+     */
+    private TaskStatistics statistics;
+
     /**
      * 默认构造
      */
@@ -94,6 +99,7 @@ public class Task {
         this.isRunning = true;
         this.interrupted = false;
         this.startTime = System.currentTimeMillis();
+        this.statistics = new TaskStatistics();
         taskId = new StringBuilder("upload.excel.")
                 .append(operator).append(".")
                 .append(IdUtil.fastSimpleUUID()).toString();
@@ -0,0 +1,86 @@
+package com.easy.framework.excel.domain.common;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+/**
+ * 任务检查点，记录业务处理已完成的批次，用于节点重启后续传
+ *
+ * @author xiongzhao
+ * @date 2021/10/16
+ */
+@Setter
+@Getter
+@ToString
+@Accessors(chain = true)
+public class TaskCheckpoint {
+
+    /**
+     * 任务id
+     */
+    private String taskId;
+
+    /**
+     * 操作人
+     */
+    private String operator;
+
+    /**
+     * 落盘文件的路径
+     */
+    private String localFile;
+
+    /**
+     * 是否并发执行
+     */
+    private Boolean parallel;
+
+    /**
+     * 分片大小，续传时按照相同的大小分批
+     */
+    private Integer partSize;
+
+    /**
+     * 业务处理的行数，即去重、校验和过滤之后的行数
+     */
+    private Integer validSize;
+
+    /**
+     * 从第一批开始连续完成的批次数，为空表示还没有开始业务处理
+     */
+    private Integer handledBatches;
+
+    /**
+     * 并发处理时先于前面的批次完成的批次序号
+     */
+    private List<Integer> completedBatches;
+
+    /**
+     * 已记录的失败行数
+     */
+    private Integer failSize;
+
+    /**
+     * 失败数据集合的版本，每次续传加一，续传时将失败数据重新写入新版本的集合
+     */
+    private Integer failsVersion;
+
+    /**
+     * 处理异常、续传时需要重新处理的批次的行数，已计入任务进度
+     */
+    private Integer retryRows;
+
+    /**
+     * 记录检查点时的任务进度
+     */
+    private Task task;
+
+    /**
+     * 更新时间
+     */
+    private Long updateTime;
+}
@@ -0,0 +1,112 @@
+package com.easy.framework.excel.domain.common;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+/**
+ * 任务统计，记录业务处理批次的大小和耗时，批次按完成顺序记录
+ *
+ * @author xiongzhao
+ * @date 2021/9/25
+ */
+@Setter
+@Getter
+@ToString
+@Accessors(chain = true)
+public class TaskStatistics {
+
+    /**
+     * 已完成的批次数
+     */
+    private Integer batches = 0;
+
+    /**
+     * 处理异常的批次数
+     */
+    private Integer errorBatches = 0;
+
+    /**
+     * 最小批次行数
+     */
+    private Integer minBatchSize;
+
+    /**
+     * 最大批次行数
+     */
+    private Integer maxBatchSize;
+
+    /**
+     * 最近一批的行数
+     */
+    private Integer lastBatchSize;
+
+    /**
+     * 下一批的行数，自适应分片时为调整后的大小
+     */
+    private Integer nextBatchSize;
+
+    /**
+     * 单批最短耗时，毫秒
+     */
+    private Long minBatchMillis;
+
+    /**
+     * 单批最长耗时，毫秒
+     */
+    private Long maxBatchMillis;
+
+    /**
+     * 最近完成的一批的耗时，毫秒
+     */
+    private Long lastBatchMillis;
+
+    /**
+     * 业务处理的累计耗时，毫秒
+     */
+    private Long handleMillis = 0L;
+
+    /**
+     * 业务处理的累计行数
+     */
+    private Long handleRows = 0L;
+
+    /**
+     * 记录一个批次
+     * @param size 批次行数
+     * @param millis 耗时
+     * @param error 是否处理异常
+     */
+    public TaskStatistics recordBatch(int size, long millis, boolean error) {
+        this.batches++;
+        if (error) {
+            this.errorBatches++;
+        }
+        this.minBatchSize = minBatchSize == null ? size : Math.min(minBatchSize, size);
+        this.maxBatchSize = maxBatchSize == null ? size : Math.max(maxBatchSize, size);
+        this.lastBatchSize = size;
+        this.minBatchMillis = minBatchMillis == null ? millis : Math.min(minBatchMillis, millis);
+        this.maxBatchMillis = maxBatchMillis == null ? millis : Math.max(maxBatchMillis, millis);
+        this.lastBatchMillis = millis;
+        this.handleMillis += millis;
+        this.handleRows += size;
+        return this;
+    }
+
+    /**
+     * 单批平均耗时，毫秒
+     * @return
+     */
+    public Long getAvgBatchMillis() {
+        return batches == 0 ? null : handleMillis / batches;
+    }
+
+    /**
+     * 平均每秒处理的行数，按各批次业务处理的累计耗时计算
+     * @return
+     */
+    public Long getRowsPerSecond() {
+        return handleMillis == 0 ? null : handleRows * 1000 / handleMillis;
+    }
+}
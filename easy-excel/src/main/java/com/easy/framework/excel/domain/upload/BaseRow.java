@@ -1,6 +1,7 @@
 package com.easy.framework.excel.domain.upload;
 
-import com.easy.framework.core.exception.InvalidParamException;
+import com.easy.framework.core.domain.rpc.request.ValidationResult;
+import com.easy.framework.core.domain.rpc.request.Validator;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -10,7 +11,8 @@ import java.io.Serializable;
  * 上传实体对象，对应每一行excel数据
  *
  * <p>
- * excel上传时，如果需要记录每一行失败的原因，excel行对应的java对象可以继承该基类
+ * excel上传时，如果需要记录每一行失败的原因，excel行对应的java对象可以继承该基类.
+ * 失败行较多的模板建议覆盖{@link Validator#validate(ValidationResult)}，校验失败时不创建异常
  * </p>
  *
  * @author xiongzhao1
@@ -18,7 +20,7 @@ import java.io.Serializable;
  */
 @Setter
 @Getter
-public abstract class BaseRow implements Serializable {
+public abstract class BaseRow implements Validator, Serializable {
 
     /**
      * 序列化id
@@ -34,11 +36,9 @@ public abstract class BaseRow implements Serializable {
      * 参数校验方法
      */
     public void doValidate() {
-        try {
-            this.validate();
-        } catch (Exception e) {
-            throw new InvalidParamException(e.getMessage());
-        }
+        ValidationResult result = new ValidationResult();
+        this.validate(result);
+        result.throwIfInvalid();
     }
 
     /**
@@ -47,6 +47,6 @@ public abstract class BaseRow implements Serializable {
      *     子类校验失败需要抛异常
      * </p>
      */
+    @Override
     public abstract void validate();
 }
-
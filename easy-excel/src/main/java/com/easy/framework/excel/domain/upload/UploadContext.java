@@ -11,10 +11,15 @@ import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.File;
 import java.util.List;
 
 /**
  * excel 上次上下文，用于参数传递，任务进度同步，记录处理失败的数据行
+ *
+ * <p>
+ *     多sheet并发处理时会并发添加失败数据，添加失败数据的方法需要同步
+ * </p>
  * @param <T> excel行数据对应的java对象
  *
  * @author xiongzhao
@@ -36,6 +41,11 @@ public class UploadContext<T extends BaseRow> {
      */
     private MultipartFile file;
 
+    /**
+     * 上传文件落盘后的本地临时文件，开启落盘时有值，任务结束后删除
+     */
+    private File localFile;
+
     /**
      * 任务执行进度
      */
@@ -77,7 +87,7 @@ public class UploadContext<T extends BaseRow> {
      * 添加到失败列表
      * @param t
      */
-    public void addFail(T t, String message) {
+    public synchronized void addFail(T t, String message) {
         if (CollectionUtils.isEmpty(failList)) {
             failList = Lists.newArrayListWithExpectedSize(100);
         }
@@ -97,7 +107,7 @@ public class UploadContext<T extends BaseRow> {
      * 批量添加到失败列表
      * @param fails
      */
-    public void addFails(List<T> fails, String message) {
+    public synchronized void addFails(List<T> fails, String message) {
         if (CollectionUtils.isEmpty(failList)) {
             failList = Lists.newArrayListWithExpectedSize(100);
         }
@@ -119,7 +129,7 @@ public class UploadContext<T extends BaseRow> {
      * 获取失败的行数
      * @return
      */
-    public long getFailSize() {
+    public synchronized long getFailSize() {
         if (CollectionUtils.isEmpty(failList)) {
             return 0L;
         }
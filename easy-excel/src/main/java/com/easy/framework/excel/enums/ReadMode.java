@@ -0,0 +1,21 @@
+package com.easy.framework.excel.enums;
+
+/**
+ * excel读取方式
+ *
+ * @author xiongzhao
+ * @date 2021/7/10
+ */
+public enum ReadMode {
+
+    /**
+     * 用户模式，一次性将整个工作簿加载到内存后再读取，支持xls、xlsx
+     */
+    DOM,
+
+    /**
+     * 事件模式，基于XSSFReader逐行解析sheet的xml，内存占用与文件行数无关，仅支持xlsx
+     */
+    SAX,
+    ;
+}
@@ -0,0 +1,109 @@
+package com.easy.framework.excel.reader;
+
+import com.easy.framework.core.exception.ServiceException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 将excel行转换为java对象的行处理器
+ *
+ * <p>
+ *     第一行为标题行，标题通过别名映射为字段名，未配置别名的标题直接作为字段名，
+ *     数据行只解析绑定了字段的列，通过{@link RowBinding}直接填充对象，忽略空行，数据行数超过最大行数时立即终止解析，
+ *     consumer为空时只统计行数
+ * </p>
+ *
+ * @param <T> excel行数据对应的java对象
+ *
+ * @author xiongzhao
+ * @date 2021/7/10
+ */
+public class BeanRowHandler<T> implements RowHandler {
+
+    /**
+     * 标题行行号
+     */
+    private static final int HEADER_ROW_INDEX = 0;
+
+    /**
+     * 行映射器
+     */
+    private final BeanRowMapper<T> mapper;
+
+    /**
+     * 标题别名，key为标题，value为字段名
+     */
+    private final Map<String, String> headerAlias;
+
+    /**
+     * 最大允许的数据行数
+     */
+    private final int maxSize;
+
+    /**
+     * 转换后的对象消费者
+     */
+    private final Consumer<T> consumer;
+
+    /**
+     * 标题行解析后的列绑定关系
+     */
+    private RowBinding<T> binding;
+
+    /**
+     * 已读取的数据行数
+     */
+    private int count;
+
+    /**
+     * 构造
+     * @param mapper 行映射器
+     * @param headerAlias 标题别名，key为标题，value为字段名
+     * @param maxSize 最大允许的数据行数
+     * @param consumer 转换后的对象消费者
+     */
+    public BeanRowHandler(BeanRowMapper<T> mapper, Map<String, String> headerAlias, int maxSize, Consumer<T> consumer) {
+        this.mapper = mapper;
+        this.headerAlias = headerAlias;
+        this.maxSize = maxSize;
+        this.consumer = consumer;
+    }
+
+    @Override
+    public void handle(int sheetIndex, int rowIndex, List<Object> rowList) {
+        if (rowIndex < HEADER_ROW_INDEX) {
+            return;
+        }
+        if (rowIndex == HEADER_ROW_INDEX) {
+            binding = mapper.bind(rowList, headerAlias);
+            return;
+        }
+        if (binding == null || binding.isEmptyRow(rowList)) {
+            return;
+        }
+        if (++count > maxSize) {
+            throw new ServiceException("上传文件最大行数不能超过" + maxSize + "行");
+        }
+        if (consumer != null) {
+            consumer.accept(binding.map(rowList));
+        }
+    }
+
+    /**
+     * 标题行解析全部列，数据行只解析绑定了字段的列
+     */
+    @Override
+    public boolean acceptColumn(int sheetIndex, int rowIndex, int columnIndex) {
+        return rowIndex == HEADER_ROW_INDEX || (binding != null && binding.isBound(columnIndex));
+    }
+
+    /**
+     * 获取已读取的数据行数
+     * @return
+     */
+    public int getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,297 @@
+package com.easy.framework.excel.reader;
+
+import cn.hutool.core.convert.Convert;
+import com.easy.framework.core.exception.ServiceException;
+import org.apache.commons.lang3.StringUtils;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * excel行到java对象的映射器
+ *
+ * <p>
+ *     每个实体类型只需创建一次：构造方法和字段setter预先编译为函数对象，
+ *     public的类和方法通过LambdaMetafactory生成，其他情况退化为MethodHandle调用.
+ *     读取到标题行后通过{@link BeanRowMapper#bind(List, Map)}得到列号到字段的绑定关系，
+ *     数据行直接按列号填充对象，不经过Map和反射拷贝
+ * </p>
+ *
+ * @param <T> excel行数据对应的java对象
+ *
+ * @author xiongzhao
+ * @date 2021/7/24
+ */
+public class BeanRowMapper<T> {
+
+    /**
+     * 实体类型
+     */
+    private final Class<T> beanClass;
+
+    /**
+     * 无参构造
+     */
+    private final Supplier<T> constructor;
+
+    /**
+     * 字段名到setter的映射
+     */
+    private final Map<String, PropertySetter> setters;
+
+    private BeanRowMapper(Class<T> beanClass, Supplier<T> constructor, Map<String, PropertySetter> setters) {
+        this.beanClass = beanClass;
+        this.constructor = constructor;
+        this.setters = setters;
+    }
+
+    /**
+     * 编译实体类型的映射器
+     * @param beanClass 实体类型，需要有无参构造
+     * @param <T>
+     * @return
+     */
+    public static <T> BeanRowMapper<T> create(Class<T> beanClass) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        boolean lambdaSupported = isLambdaSupported(beanClass);
+        try {
+            Constructor<T> ctor = beanClass.getDeclaredConstructor();
+            Supplier<T> constructor = lambdaSupported && Modifier.isPublic(ctor.getModifiers())
+                    ? lambdaConstructor(lookup, beanClass, ctor)
+                    : handleConstructor(lookup, ctor);
+
+            Map<String, PropertySetter> setters = new HashMap<>();
+            for (Class<?> clazz = beanClass; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+                for (Field field : clazz.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers())
+                            || setters.containsKey(field.getName())) {
+                        continue;
+                    }
+                    setters.put(field.getName(), new PropertySetter(field.getType(), setter(lookup, beanClass, field, lambdaSupported)));
+                }
+            }
+            return new BeanRowMapper<>(beanClass, constructor, setters);
+        } catch (Throwable e) {
+            throw new ServiceException("创建excel行映射器失败，" + beanClass.getName() + "需要有无参构造，" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 根据标题行绑定列号与字段
+     * @param headerRow 标题行
+     * @param headerAlias 标题别名，key为标题，value为字段名，未配置别名的标题直接作为字段名
+     * @return
+     */
+    public RowBinding<T> bind(List<?> headerRow, Map<String, String> headerAlias) {
+        List<Integer> columns = new ArrayList<>();
+        List<PropertySetter> bound = new ArrayList<>();
+        for (int i = 0; i < headerRow.size(); i++) {
+            Object title = headerRow.get(i);
+            if (title == null || StringUtils.isBlank(title.toString())) {
+                continue;
+            }
+            String header = title.toString().trim();
+            PropertySetter setter = setters.get(headerAlias.getOrDefault(header, header));
+            if (setter != null) {
+                columns.add(i);
+                bound.add(setter);
+            }
+        }
+        return new RowBinding<>(this, columns.stream().mapToInt(Integer::intValue).toArray(), bound.toArray(new PropertySetter[0]));
+    }
+
+    /**
+     * 创建实体对象
+     * @return
+     */
+    T newInstance() {
+        return constructor.get();
+    }
+
+    /**
+     * 实体类型
+     * @return
+     */
+    public Class<T> getBeanClass() {
+        return beanClass;
+    }
+
+    /**
+     * 字段setter：优先使用set方法，没有set方法时直接设置字段
+     */
+    private static BiConsumer<Object, Object> setter(MethodHandles.Lookup lookup, Class<?> beanClass, Field field, boolean lambdaSupported) throws Throwable {
+        Method method = findSetter(beanClass, field);
+        if (method != null) {
+            if (lambdaSupported && Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+                return lambdaSetter(lookup, beanClass, method);
+            }
+            method.setAccessible(true);
+            return handleSetter(lookup.unreflect(method));
+        }
+        field.setAccessible(true);
+        return handleSetter(lookup.unreflectSetter(field));
+    }
+
+    /**
+     * 查找public的set方法，兼容链式set方法
+     */
+    private static Method findSetter(Class<?> beanClass, Field field) {
+        String name = "set" + StringUtils.capitalize(field.getName());
+        try {
+            return beanClass.getMethod(name, field.getType());
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 通过LambdaMetafactory生成setter
+     */
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> lambdaSetter(MethodHandles.Lookup lookup, Class<?> beanClass, Method method) throws Throwable {
+        MethodHandle impl = lookup.unreflect(method);
+        Class<?> paramType = method.getParameterTypes()[0];
+        if (paramType.isPrimitive()) {
+            paramType = wrap(paramType);
+        }
+        CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+                MethodType.methodType(BiConsumer.class),
+                MethodType.methodType(void.class, Object.class, Object.class),
+                impl,
+                MethodType.methodType(void.class, beanClass, paramType));
+        return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+    }
+
+    /**
+     * 通过LambdaMetafactory生成构造方法
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Supplier<T> lambdaConstructor(MethodHandles.Lookup lookup, Class<T> beanClass, Constructor<T> ctor) throws Throwable {
+        MethodHandle impl = lookup.unreflectConstructor(ctor);
+        CallSite site = LambdaMetafactory.metafactory(lookup, "get",
+                MethodType.methodType(Supplier.class),
+                MethodType.methodType(Object.class),
+                impl,
+                MethodType.methodType(beanClass));
+        return (Supplier<T>) site.getTarget().invokeExact();
+    }
+
+    /**
+     * MethodHandle调用的setter
+     */
+    private static BiConsumer<Object, Object> handleSetter(MethodHandle handle) {
+        MethodHandle setter = handle.asType(MethodType.methodType(void.class, Object.class, Object.class));
+        return (bean, value) -> {
+            try {
+                setter.invokeExact(bean, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new ServiceException("excel行数据赋值失败，" + e.getMessage(), e);
+            }
+        };
+    }
+
+    /**
+     * MethodHandle调用的构造方法
+     */
+    private static <T> Supplier<T> handleConstructor(MethodHandles.Lookup lookup, Constructor<T> ctor) throws IllegalAccessException {
+        ctor.setAccessible(true);
+        MethodHandle constructor = lookup.unreflectConstructor(ctor).asType(MethodType.methodType(Object.class));
+        return () -> {
+            try {
+                @SuppressWarnings("unchecked")
+                T t = (T) constructor.invokeExact();
+                return t;
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new ServiceException("excel行数据创建对象失败，" + e.getMessage(), e);
+            }
+        };
+    }
+
+    /**
+     * 生成的lambda类定义在当前类的类加载器中，实体类型对当前类加载器可见且为public时才能使用
+     */
+    private static boolean isLambdaSupported(Class<?> beanClass) {
+        if (!Modifier.isPublic(beanClass.getModifiers())) {
+            return false;
+        }
+        try {
+            return Class.forName(beanClass.getName(), false, BeanRowMapper.class.getClassLoader()) == beanClass;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 基本类型转包装类型
+     */
+    private static Class<?> wrap(Class<?> type) {
+        return MethodType.methodType(type).wrap().returnType();
+    }
+
+    /**
+     * 带类型转换的字段setter
+     */
+    static final class PropertySetter {
+
+        /**
+         * 字段类型，基本类型转换为包装类型
+         */
+        private final Class<?> type;
+
+        /**
+         * setter
+         */
+        private final BiConsumer<Object, Object> setter;
+
+        PropertySetter(Class<?> type, BiConsumer<Object, Object> setter) {
+            this.type = type.isPrimitive() ? wrap(type) : type;
+            this.setter = setter;
+        }
+
+        /**
+         * 设置字段值，空值不设置，类型转换失败时忽略该字段
+         * @param bean
+         * @param value
+         */
+        void set(Object bean, Object value) {
+            if (value == null) {
+                return;
+            }
+            Object v = convert(value);
+            if (v != null) {
+                setter.accept(bean, v);
+            }
+        }
+
+        private Object convert(Object value) {
+            if (type.isInstance(value)) {
+                return value;
+            }
+            if (type == String.class) {
+                return value.toString();
+            }
+            try {
+                return Convert.convert(type, value);
+            } catch (Exception e) {
+                return null;
+            }
+        }
+    }
+}
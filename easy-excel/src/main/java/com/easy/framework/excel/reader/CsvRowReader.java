@@ -0,0 +1,339 @@
+package com.easy.framework.excel.reader;
+
+import cn.hutool.core.io.IoUtil;
+import com.easy.framework.core.exception.ServiceException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 基于内存映射的csv读取器
+ *
+ * <p>
+ *     直接在映射的文件字节上解析，支持RFC4180的双引号转义和跨行字段，只对绑定了字段的列解码为String，
+ *     未绑定的列只扫描分隔符，不产生任何对象. 字符集需要兼容ASCII(如UTF-8、GBK、GB18030)，
+ *     UTF-8文件开头的BOM会被忽略
+ * </p>
+ *
+ * @param <T> excel行数据对应的java对象
+ *
+ * @author xiongzhao
+ * @date 2021/7/31
+ */
+public class CsvRowReader<T> implements RowReader<T> {
+
+    /**
+     * 分隔符
+     */
+    private static final byte SEPARATOR = ',';
+
+    /**
+     * 引号
+     */
+    private static final byte QUOTE = '"';
+
+    /**
+     * 回车
+     */
+    private static final byte CR = '\r';
+
+    /**
+     * 换行
+     */
+    private static final byte LF = '\n';
+
+    /**
+     * 文件通道
+     */
+    private final FileChannel channel;
+
+    /**
+     * 映射的文件内容
+     */
+    private final MappedByteBuffer buffer;
+
+    /**
+     * 内容起始位置，跳过BOM
+     */
+    private final int start;
+
+    /**
+     * 字符集
+     */
+    private final Charset charset;
+
+    /**
+     * 行映射器
+     */
+    private final BeanRowMapper<T> mapper;
+
+    /**
+     * 标题别名，key为标题，value为字段名
+     */
+    private final Map<String, String> headerAlias;
+
+    /**
+     * 最大允许的数据行数
+     */
+    private final int maxSize;
+
+    /**
+     * 构造
+     * @param file csv文件
+     * @param charset 字符集
+     * @param mapper 行映射器
+     * @param headerAlias 标题别名，key为标题，value为字段名
+     * @param maxSize 最大允许的数据行数
+     */
+    public CsvRowReader(File file, Charset charset, BeanRowMapper<T> mapper, Map<String, String> headerAlias, int maxSize) {
+        if (!Arrays.equals(",\"\r\n".getBytes(charset), new byte[]{SEPARATOR, QUOTE, CR, LF})) {
+            throw new ServiceException("不支持的csv文件编码" + charset.name());
+        }
+        this.charset = charset;
+        this.mapper = mapper;
+        this.headerAlias = headerAlias;
+        this.maxSize = maxSize;
+        FileChannel fileChannel = null;
+        try {
+            fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            if (fileChannel.size() > Integer.MAX_VALUE) {
+                throw new ServiceException("csv文件不能超过2G");
+            }
+            this.buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+            this.channel = fileChannel;
+        } catch (IOException e) {
+            IoUtil.close(fileChannel);
+            throw new ServiceException("读取csv文件失败，" + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            IoUtil.close(fileChannel);
+            throw e;
+        }
+        boolean bom = buffer.limit() >= 3 && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB && buffer.get(2) == (byte) 0xBF;
+        this.start = bom ? 3 : 0;
+    }
+
+    @Override
+    public int count() {
+        return parse(null);
+    }
+
+    /**
+     * 按字节扫描换行符统计含有内容的行，不解析引号和字段，跨行的引号字段会多计，超过limit后立即停止
+     * @param limit 最大允许的数据行数
+     * @return
+     */
+    @Override
+    public int estimate(int limit) {
+        int limitPos = buffer.limit();
+        int rows = 0;
+        boolean hasValue = false;
+        for (int pos = start; pos < limitPos; pos++) {
+            byte b = buffer.get(pos);
+            if (b == LF || b == CR) {
+                if (hasValue && ++rows - 1 > limit) {
+                    return limit + 1;
+                }
+                hasValue = false;
+            } else if (b != SEPARATOR && b != QUOTE && b != ' ' && b != '\t') {
+                hasValue = true;
+            }
+        }
+        if (hasValue) {
+            rows++;
+        }
+        return Math.max(rows - 1, 0);
+    }
+
+    @Override
+    public void read(Consumer<T> consumer) {
+        parse(consumer);
+    }
+
+    @Override
+    public void close() {
+        IoUtil.close(channel);
+    }
+
+    /**
+     * 解析文件，consumer为空时只统计行数
+     * @param consumer
+     * @return 数据行数
+     */
+    private int parse(Consumer<T> consumer) {
+        Parser parser = new Parser();
+
+        // 标题行解码全部列
+        List<Object> header = new ArrayList<>();
+        if (!parser.nextRecord(header, null)) {
+            return 0;
+        }
+        RowBinding<T> binding = mapper.bind(header, headerAlias);
+        int[] columns = binding.getColumns();
+        int width = columns.length == 0 ? 0 : columns[columns.length - 1] + 1;
+        boolean[] projected = new boolean[width];
+        for (int column : columns) {
+            projected[column] = true;
+        }
+
+        // 数据行只解码绑定的列
+        List<Object> rowList = new ArrayList<>(Collections.nCopies(width, null));
+        int count = 0;
+        while (parser.nextRecord(rowList, projected)) {
+            if (binding.isEmptyRow(rowList)) {
+                continue;
+            }
+            if (++count > maxSize) {
+                throw new ServiceException("上传文件最大行数不能超过" + maxSize + "行");
+            }
+            if (consumer != null) {
+                consumer.accept(binding.map(rowList));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 单次解析的游标，持有读取位置和解码缓冲区
+     */
+    private class Parser {
+
+        /**
+         * 用于批量拷贝字节的视图
+         */
+        private final ByteBuffer view = buffer.duplicate();
+
+        /**
+         * 文件长度
+         */
+        private final int limit = buffer.limit();
+
+        /**
+         * 当前位置
+         */
+        private int pos = start;
+
+        /**
+         * 解码缓冲区
+         */
+        private byte[] scratch = new byte[256];
+
+        /**
+         * 读取一条记录
+         * @param row 列值，projected为空时清空后按顺序添加全部列，否则只设置projected为true的列
+         * @param projected 需要解码的列
+         * @return 是否读取到记录
+         */
+        boolean nextRecord(List<Object> row, boolean[] projected) {
+            if (pos >= limit) {
+                return false;
+            }
+            if (projected == null) {
+                row.clear();
+            } else {
+                for (int i = 0; i < projected.length; i++) {
+                    if (projected[i]) {
+                        row.set(i, null);
+                    }
+                }
+            }
+            for (int column = 0; ; column++) {
+                boolean decode = projected == null || (column < projected.length && projected[column]);
+                String value = readField(decode);
+                if (projected == null) {
+                    row.add(value);
+                } else if (decode) {
+                    row.set(column, value);
+                }
+                if (pos >= limit) {
+                    return true;
+                }
+                byte b = buffer.get(pos++);
+                if (b == SEPARATOR) {
+                    continue;
+                }
+                // 行结束，兼容\r\n
+                if (b == CR && pos < limit && buffer.get(pos) == LF) {
+                    pos++;
+                }
+                return true;
+            }
+        }
+
+        /**
+         * 读取一个字段，停在分隔符或换行符上
+         * @param decode 是否解码，否则只跳过
+         * @return 字段值，空字段返回null
+         */
+        private String readField(boolean decode) {
+            if (pos < limit && buffer.get(pos) == QUOTE) {
+                return readQuotedField(decode);
+            }
+            int from = pos;
+            while (pos < limit) {
+                byte b = buffer.get(pos);
+                if (b == SEPARATOR || b == CR || b == LF) {
+                    break;
+                }
+                pos++;
+            }
+            int length = pos - from;
+            if (!decode || length == 0) {
+                return null;
+            }
+            ensureCapacity(length);
+            view.position(from);
+            view.get(scratch, 0, length);
+            return new String(scratch, 0, length, charset);
+        }
+
+        /**
+         * 读取双引号包围的字段，两个连续的双引号表示一个双引号
+         * @param decode 是否解码，否则只跳过
+         * @return
+         */
+        private String readQuotedField(boolean decode) {
+            pos++;
+            int length = 0;
+            while (pos < limit) {
+                byte b = buffer.get(pos++);
+                if (b == QUOTE) {
+                    if (pos < limit && buffer.get(pos) == QUOTE) {
+                        pos++;
+                    } else {
+                        break;
+                    }
+                }
+                if (decode) {
+                    ensureCapacity(length + 1);
+                    scratch[length++] = b;
+                }
+            }
+            // 忽略右引号与分隔符之间的非法内容
+            while (pos < limit) {
+                byte b = buffer.get(pos);
+                if (b == SEPARATOR || b == CR || b == LF) {
+                    break;
+                }
+                pos++;
+            }
+            return decode && length > 0 ? new String(scratch, 0, length, charset) : null;
+        }
+
+        private void ensureCapacity(int length) {
+            if (scratch.length < length) {
+                scratch = Arrays.copyOf(scratch, Math.max(length, scratch.length * 2));
+            }
+        }
+    }
+}
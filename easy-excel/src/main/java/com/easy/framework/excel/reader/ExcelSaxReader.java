@@ -0,0 +1,305 @@
+package com.easy.framework.excel.reader;
+
+import cn.hutool.core.io.IoUtil;
+import com.easy.framework.core.exception.ServiceException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.util.SAXHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 基于XSSFReader的xlsx事件模式读取器
+ *
+ * <p>
+ *     不构建工作簿对象模型，逐行解析sheet的xml并回调{@link RowHandler}，
+ *     解析过程中内存占用只与单行数据大小有关
+ * </p>
+ *
+ * @author xiongzhao
+ * @date 2021/7/10
+ */
+public class ExcelSaxReader implements Closeable {
+
+    /**
+     * 预检使用的StAX工厂，禁用DTD和外部实体
+     */
+    static final XMLInputFactory STAX_FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        STAX_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        STAX_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /**
+     * xlsx文件包
+     */
+    private final OPCPackage pkg;
+
+    /**
+     * 是否使用基于临时文件的共享字符串表
+     */
+    private boolean diskSharedStrings;
+
+    /**
+     * 共享字符串表，首次读取时加载，多次读取共用
+     */
+    private SharedStrings sharedStrings;
+
+    /**
+     * 样式表，首次读取时加载，多次读取共用
+     */
+    private StylesTable stylesTable;
+
+    /**
+     * 是否已关闭
+     */
+    private boolean closed;
+
+    /**
+     * 构造
+     *
+     * <p>
+     *     POI从流打开时会将zip中的所有部件解压到堆内，内存占用与文件大小成正比，大文件应落盘后使用{@link ExcelSaxReader#ExcelSaxReader(File)}
+     * </p>
+     * @param in xlsx文件流
+     */
+    public ExcelSaxReader(InputStream in) {
+        try {
+            this.pkg = OPCPackage.open(in);
+        } catch (IOException | OpenXML4JException e) {
+            throw new ServiceException("读取excel失败，仅支持xlsx格式的文件", e);
+        }
+    }
+
+    /**
+     * 构造，按文件路径只读打开，zip内容直接从文件读取，不在堆内缓存整个文件
+     * @param file xlsx文件
+     */
+    public ExcelSaxReader(File file) {
+        try {
+            this.pkg = OPCPackage.open(file, PackageAccess.READ);
+        } catch (OpenXML4JException e) {
+            throw new ServiceException("读取excel失败，仅支持xlsx格式的文件", e);
+        }
+    }
+
+    /**
+     * 读取指定sheet
+     *
+     * <p>
+     *     支持多个线程并发读取不同的sheet，文件包结构的访问串行执行，sheet内容的解析并发执行
+     * </p>
+     * @param sheetIndex sheet序号，从0开始
+     * @param rowHandler 行处理器
+     */
+    public void read(int sheetIndex, RowHandler rowHandler) {
+        try {
+            SharedStrings strings = sharedStrings();
+            StylesTable styles = stylesTable();
+            try (InputStream sheet = openSheet(sheetIndex)) {
+                XMLReader xmlReader = SAXHelper.newXMLReader();
+                xmlReader.setContentHandler(new SheetSaxHandler(sheetIndex, strings, styles, rowHandler));
+                xmlReader.parse(new InputSource(sheet));
+            }
+        } catch (IOException | OpenXML4JException | SAXException | ParserConfigurationException | XMLStreamException e) {
+            throw new ServiceException("解析excel失败，" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 预估指定sheet的数据行数，用于解析前拒绝空文件和超大文件
+     *
+     * <p>
+     *     不加载共享字符串表和样式表，先读取sheet开头的dimension节点，已使用区域不超过limit时直接返回；
+     *     dimension缺失、只有一行或超过limit时，继续扫描row节点，只统计包含值的行，不解码单元格，超过limit后立即停止.
+     *     返回值为数据行数的上限(不含标题行)，只包含未映射列的值的行也会被统计
+     * </p>
+     * @param sheetIndex sheet序号，从0开始
+     * @param limit 最大允许的数据行数
+     * @return 预估的数据行数，超过limit时返回limit + 1
+     */
+    public int estimateRows(int sheetIndex, int limit) {
+        XMLStreamReader xmlReader = null;
+        try (InputStream sheet = openSheet(sheetIndex)) {
+            xmlReader = STAX_FACTORY.createXMLStreamReader(sheet);
+            int rows = 0;
+            boolean hasValue = false;
+            while (xmlReader.hasNext()) {
+                int event = xmlReader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = xmlReader.getLocalName();
+                    if ("dimension".equals(name)) {
+                        int lastRow = lastRow(xmlReader.getAttributeValue(null, "ref"));
+                        if (lastRow > 1 && lastRow - 1 <= limit) {
+                            return lastRow - 1;
+                        }
+                    } else if ("row".equals(name)) {
+                        hasValue = false;
+                    } else if ("v".equals(name) || "is".equals(name)) {
+                        hasValue = true;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    String name = xmlReader.getLocalName();
+                    if ("row".equals(name) && hasValue && ++rows - 1 > limit) {
+                        return limit + 1;
+                    } else if ("sheetData".equals(name)) {
+                        break;
+                    }
+                }
+            }
+            return Math.max(rows - 1, 0);
+        } catch (IOException | OpenXML4JException | XMLStreamException e) {
+            throw new ServiceException("解析excel失败，" + e.getMessage(), e);
+        } finally {
+            if (xmlReader != null) {
+                try {
+                    xmlReader.close();
+                } catch (XMLStreamException ignore) {
+                    // 流已关闭
+                }
+            }
+        }
+    }
+
+    /**
+     * 设置是否使用基于临时文件的共享字符串表，需要在首次读取前设置
+     *
+     * <p>
+     *     默认使用POI的{@link ReadOnlySharedStringsTable}，所有唯一字符串都保存在堆内，唯一值很多的大文件可能占用数百MB.
+     *     开启后字符串保存在临时文件中，偏移索引通过内存映射读取，读取单元格时才解码，堆内只缓存最近访问的少量字符串
+     * </p>
+     * @param diskSharedStrings
+     */
+    public void setDiskSharedStrings(boolean diskSharedStrings) {
+        this.diskSharedStrings = diskSharedStrings;
+    }
+
+    /**
+     * 获取sheet数量
+     * @return
+     */
+    public synchronized int getSheetCount() {
+        try {
+            Iterator<InputStream> sheets = new XSSFReader(pkg).getSheetsData();
+            int count = 0;
+            while (sheets.hasNext()) {
+                sheets.next().close();
+                count++;
+            }
+            return count;
+        } catch (IOException | OpenXML4JException e) {
+            throw new ServiceException("解析excel失败，" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 获取样式表，首次调用时加载
+     * @return
+     */
+    private synchronized StylesTable stylesTable() throws IOException, OpenXML4JException {
+        if (stylesTable == null) {
+            stylesTable = new XSSFReader(pkg).getStylesTable();
+        }
+        return stylesTable;
+    }
+
+    /**
+     * 打开指定sheet的xml流
+     * @param sheetIndex
+     * @return
+     */
+    private synchronized InputStream openSheet(int sheetIndex) throws IOException, OpenXML4JException {
+        return sheet(new XSSFReader(pkg), sheetIndex);
+    }
+
+    /**
+     * 获取共享字符串表，首次调用时加载
+     * @return
+     */
+    private synchronized SharedStrings sharedStrings() throws IOException, SAXException, OpenXML4JException, XMLStreamException {
+        if (sharedStrings == null) {
+            if (diskSharedStrings) {
+                List<PackagePart> parts = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+                if (parts.isEmpty()) {
+                    sharedStrings = new FileSharedStrings(null);
+                } else {
+                    try (InputStream in = parts.get(0).getInputStream()) {
+                        sharedStrings = new FileSharedStrings(in);
+                    }
+                }
+            } else {
+                sharedStrings = new HeapSharedStrings(new ReadOnlySharedStringsTable(pkg));
+            }
+        }
+        return sharedStrings;
+    }
+
+    /**
+     * 获取指定sheet的xml流，其余sheet的流直接关闭
+     * @param xssfReader
+     * @param sheetIndex sheet序号，从0开始
+     * @return
+     */
+    private static InputStream sheet(XSSFReader xssfReader, int sheetIndex) throws IOException, OpenXML4JException {
+        Iterator<InputStream> sheets = xssfReader.getSheetsData();
+        for (int i = 0; sheets.hasNext(); i++) {
+            InputStream sheet = sheets.next();
+            if (i == sheetIndex) {
+                return sheet;
+            }
+            sheet.close();
+        }
+        throw new ServiceException("excel中不存在第" + (sheetIndex + 1) + "个sheet");
+    }
+
+    /**
+     * dimension引用的最后一行行号，如：A1:K1000 -> 1000，无法解析时返回-1
+     * @param ref
+     * @return
+     */
+    private static int lastRow(String ref) {
+        if (ref == null || ref.isEmpty()) {
+            return -1;
+        }
+        int end = ref.length();
+        int begin = end;
+        while (begin > 0 && Character.isDigit(ref.charAt(begin - 1))) {
+            begin--;
+        }
+        if (begin == end || end - begin > 9) {
+            return -1;
+        }
+        return Integer.parseInt(ref.substring(begin, end));
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        IoUtil.close(sharedStrings);
+        // 只读打开，不回写文件
+        pkg.revert();
+    }
+}
@@ -0,0 +1,198 @@
+package com.easy.framework.excel.reader;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import com.easy.framework.core.exception.ServiceException;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 基于临时文件的共享字符串表
+ *
+ * <p>
+ *     流式解析sharedStrings.xml，字符串按UTF-8依次写入数据文件，每个字符串的起始偏移写入索引文件，
+ *     索引文件通过内存映射读取，不占用堆内存. 字符串在读取时才从数据文件解码，
+ *     只在堆内缓存最近访问的{@link FileSharedStrings#CACHE_SIZE}个，堆内存占用与唯一字符串的数量无关.
+ *     关闭时删除临时文件
+ * </p>
+ *
+ * @author xiongzhao
+ * @date 2021/8/7
+ */
+class FileSharedStrings implements SharedStrings {
+
+    /**
+     * 缓存最近访问的字符串个数
+     */
+    private static final int CACHE_SIZE = 1024;
+
+    /**
+     * 写文件缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 字符串数据文件
+     */
+    private final File dataFile;
+
+    /**
+     * 偏移索引文件，共count + 1个long，第i个字符串的范围为[offset(i), offset(i + 1))
+     */
+    private final File indexFile;
+
+    /**
+     * 数据文件通道，按位置读取，支持并发
+     */
+    private FileChannel dataChannel;
+
+    /**
+     * 索引文件通道
+     */
+    private FileChannel indexChannel;
+
+    /**
+     * 映射的偏移索引
+     */
+    private MappedByteBuffer index;
+
+    /**
+     * 字符串个数
+     */
+    private int count;
+
+    /**
+     * 最近访问的字符串
+     */
+    private final Map<Integer, String> cache = new LinkedHashMap<Integer, String>(CACHE_SIZE * 4 / 3 + 1, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /**
+     * 构造
+     * @param in sharedStrings.xml的内容，为空时表示没有共享字符串
+     */
+    FileSharedStrings(InputStream in) throws IOException, XMLStreamException {
+        this.dataFile = File.createTempFile("easy-excel-sst-", ".data");
+        this.indexFile = File.createTempFile("easy-excel-sst-", ".index");
+        try {
+            this.count = write(in);
+            if (indexFile.length() > Integer.MAX_VALUE) {
+                throw new ServiceException("excel共享字符串数量过多");
+            }
+            this.dataChannel = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ);
+            this.indexChannel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ);
+            this.index = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, indexChannel.size());
+        } catch (IOException | XMLStreamException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public String getEntryAt(int idx) {
+        synchronized (cache) {
+            String s = cache.get(idx);
+            if (s != null) {
+                return s;
+            }
+        }
+        if (idx < 0 || idx >= count) {
+            throw new ServiceException("excel共享字符串下标越界，" + idx);
+        }
+        long from = index.getLong(idx * 8);
+        long to = index.getLong(idx * 8 + 8);
+        ByteBuffer buf = ByteBuffer.allocate((int) (to - from));
+        try {
+            while (buf.hasRemaining() && dataChannel.read(buf, from + buf.position()) >= 0) {
+                // 读取到指定长度为止
+            }
+        } catch (IOException e) {
+            throw new ServiceException("读取excel共享字符串失败，" + e.getMessage(), e);
+        }
+        String s = new String(buf.array(), 0, buf.position(), StandardCharsets.UTF_8);
+        synchronized (cache) {
+            cache.put(idx, s);
+        }
+        return s;
+    }
+
+    @Override
+    public void close() {
+        IoUtil.close(dataChannel);
+        IoUtil.close(indexChannel);
+        FileUtil.del(dataFile);
+        FileUtil.del(indexFile);
+    }
+
+    /**
+     * 解析sharedStrings.xml，写入数据文件和索引文件
+     * <p>
+     *     富文本字符串拼接所有t节点的文本，与{@link org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable}保持一致
+     * </p>
+     * @param in
+     * @return 字符串个数
+     */
+    private int write(InputStream in) throws IOException, XMLStreamException {
+        int n = 0;
+        long offset = 0;
+        try (DataOutputStream indexOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile), BUFFER_SIZE));
+             OutputStream dataOut = new BufferedOutputStream(new FileOutputStream(dataFile), BUFFER_SIZE)) {
+            if (in != null) {
+                XMLStreamReader xmlReader = ExcelSaxReader.STAX_FACTORY.createXMLStreamReader(in);
+                try {
+                    StringBuilder text = new StringBuilder();
+                    boolean inText = false;
+                    while (xmlReader.hasNext()) {
+                        int event = xmlReader.next();
+                        if (event == XMLStreamConstants.START_ELEMENT) {
+                            String name = xmlReader.getLocalName();
+                            if ("si".equals(name)) {
+                                text.setLength(0);
+                            } else if ("t".equals(name)) {
+                                inText = true;
+                            }
+                        } else if (event == XMLStreamConstants.END_ELEMENT) {
+                            String name = xmlReader.getLocalName();
+                            if ("t".equals(name)) {
+                                inText = false;
+                            } else if ("si".equals(name)) {
+                                byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+                                indexOut.writeLong(offset);
+                                dataOut.write(bytes);
+                                offset += bytes.length;
+                                n++;
+                            }
+                        } else if (inText && (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                                || event == XMLStreamConstants.SPACE)) {
+                            text.append(xmlReader.getTextCharacters(), xmlReader.getTextStart(), xmlReader.getTextLength());
+                        }
+                    }
+                } finally {
+                    xmlReader.close();
+                }
+            }
+            indexOut.writeLong(offset);
+        }
+        return n;
+    }
+}
@@ -0,0 +1,31 @@
+package com.easy.framework.excel.reader;
+
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+
+/**
+ * 基于{@link ReadOnlySharedStringsTable}的共享字符串表，全部字符串保存在堆内
+ *
+ * @author xiongzhao
+ * @date 2021/8/7
+ */
+class HeapSharedStrings implements SharedStrings {
+
+    /**
+     * POI的只读共享字符串表
+     */
+    private final ReadOnlySharedStringsTable table;
+
+    HeapSharedStrings(ReadOnlySharedStringsTable table) {
+        this.table = table;
+    }
+
+    @Override
+    public String getEntryAt(int idx) {
+        return table.getEntryAt(idx);
+    }
+
+    @Override
+    public void close() {
+        // 随对象回收
+    }
+}
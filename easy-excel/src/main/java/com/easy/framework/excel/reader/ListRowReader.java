@@ -0,0 +1,55 @@
+package com.easy.framework.excel.reader;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 基于已加载列表的读取器，用于用户模式(DOM)读取的excel
+ *
+ * @param <T> excel行数据对应的java对象
+ *
+ * @author xiongzhao
+ * @date 2021/7/17
+ */
+public class ListRowReader<T> implements RowReader<T> {
+
+    /**
+     * 数据行
+     */
+    private final List<T> list;
+
+    /**
+     * 构造
+     * @param list
+     */
+    public ListRowReader(List<T> list) {
+        this.list = list;
+    }
+
+    @Override
+    public int count() {
+        return list == null ? 0 : list.size();
+    }
+
+    @Override
+    public int estimate(int limit) {
+        return count();
+    }
+
+    @Override
+    public void read(Consumer<T> consumer) {
+        if (list != null) {
+            list.forEach(consumer);
+        }
+    }
+
+    @Override
+    public List<T> readAll() {
+        return list;
+    }
+
+    @Override
+    public void close() {
+        // 无需释放资源
+    }
+}
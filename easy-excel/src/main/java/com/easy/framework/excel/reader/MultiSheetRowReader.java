@@ -0,0 +1,75 @@
+package com.easy.framework.excel.reader;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 多sheet读取器，每个sheet对应一个读取器，所有sheet使用相同的标题模板
+ *
+ * <p>
+ *     {@link MultiSheetRowReader#read(Consumer)}按sheet顺序依次读取，
+ *     需要并发读取时通过{@link MultiSheetRowReader#sheets()}获取每个sheet的读取器
+ * </p>
+ *
+ * @param <T> excel行数据对应的java对象
+ *
+ * @author xiongzhao
+ * @date 2021/8/14
+ */
+public class MultiSheetRowReader<T> implements RowReader<T> {
+
+    /**
+     * 每个sheet的读取器
+     */
+    private final List<RowReader<T>> sheets;
+
+    /**
+     * 构造
+     * @param sheets 每个sheet的读取器
+     */
+    public MultiSheetRowReader(List<RowReader<T>> sheets) {
+        this.sheets = sheets;
+    }
+
+    @Override
+    public int count() {
+        int count = 0;
+        for (RowReader<T> sheet : sheets) {
+            count += sheet.count();
+        }
+        return count;
+    }
+
+    @Override
+    public int estimate(int limit) {
+        int estimate = 0;
+        for (RowReader<T> sheet : sheets) {
+            int rows = sheet.estimate(limit - estimate);
+            if (rows < 0) {
+                return -1;
+            }
+            estimate += rows;
+            if (estimate > limit) {
+                return limit + 1;
+            }
+        }
+        return estimate;
+    }
+
+    @Override
+    public void read(Consumer<T> consumer) {
+        for (RowReader<T> sheet : sheets) {
+            sheet.read(consumer);
+        }
+    }
+
+    @Override
+    public List<RowReader<T>> sheets() {
+        return sheets;
+    }
+
+    @Override
+    public void close() {
+        sheets.forEach(RowReader::close);
+    }
+}
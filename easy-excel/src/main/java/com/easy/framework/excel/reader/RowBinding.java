@@ -0,0 +1,94 @@
+package com.easy.framework.excel.reader;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.List;
+
+/**
+ * 标题行解析后得到的列号与字段的绑定关系
+ *
+ * @param <T> excel行数据对应的java对象
+ *
+ * @author xiongzhao
+ * @date 2021/7/24
+ */
+public class RowBinding<T> {
+
+    /**
+     * 映射器
+     */
+    private final BeanRowMapper<T> mapper;
+
+    /**
+     * 绑定了字段的列号，升序
+     */
+    private final int[] columns;
+
+    /**
+     * 与列号一一对应的setter
+     */
+    private final BeanRowMapper.PropertySetter[] setters;
+
+    /**
+     * 下标为列号，列是否绑定了字段
+     */
+    private final boolean[] bound;
+
+    RowBinding(BeanRowMapper<T> mapper, int[] columns, BeanRowMapper.PropertySetter[] setters) {
+        this.mapper = mapper;
+        this.columns = columns;
+        this.setters = setters;
+        this.bound = new boolean[columns.length == 0 ? 0 : columns[columns.length - 1] + 1];
+        for (int column : columns) {
+            bound[column] = true;
+        }
+    }
+
+    /**
+     * 列是否绑定了字段，未绑定的列无需解析
+     * @param column 列号
+     * @return
+     */
+    public boolean isBound(int column) {
+        return column >= 0 && column < bound.length && bound[column];
+    }
+
+    /**
+     * 绑定了字段的列号，升序
+     * @return
+     */
+    public int[] getColumns() {
+        return columns;
+    }
+
+    /**
+     * 绑定的列是否全部为空
+     * @param rowList 单元格值列表，下标为列号
+     * @return
+     */
+    public boolean isEmptyRow(List<Object> rowList) {
+        for (int column : columns) {
+            if (column >= rowList.size()) {
+                break;
+            }
+            Object cell = rowList.get(column);
+            if (cell != null && !(cell instanceof String && StringUtils.isBlank((String) cell))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 将一行数据转换为java对象，只读取绑定的列
+     * @param rowList 单元格值列表，下标为列号
+     * @return
+     */
+    public T map(List<Object> rowList) {
+        T bean = mapper.newInstance();
+        for (int i = 0; i < columns.length && columns[i] < rowList.size(); i++) {
+            setters[i].set(bean, rowList.get(columns[i]));
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,38 @@
+package com.easy.framework.excel.reader;
+
+import java.util.List;
+
+/**
+ * excel事件模式读取的行处理器
+ *
+ * @author xiongzhao
+ * @date 2021/7/10
+ */
+@FunctionalInterface
+public interface RowHandler {
+
+    /**
+     * 处理一行数据
+     * <p>
+     *     rowList在回调结束后会被复用，如需保留数据，需要自行拷贝
+     * </p>
+     * @param sheetIndex sheet序号，从0开始
+     * @param rowIndex 行号，从0开始
+     * @param rowList 单元格值列表，下标为列号，空单元格为null
+     */
+    void handle(int sheetIndex, int rowIndex, List<Object> rowList);
+
+    /**
+     * 是否解析指定单元格，默认全部解析
+     * <p>
+     *     返回false的单元格不读取文本、不查询共享字符串、不做日期转换，在rowList中为null
+     * </p>
+     * @param sheetIndex sheet序号，从0开始
+     * @param rowIndex 行号，从0开始
+     * @param columnIndex 列号，从0开始
+     * @return
+     */
+    default boolean acceptColumn(int sheetIndex, int rowIndex, int columnIndex) {
+        return true;
+    }
+}
@@ -0,0 +1,68 @@
+package com.easy.framework.excel.reader;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 可重复读取的excel数据行读取器
+ *
+ * <p>
+ *     每次调用{@link RowReader#read(Consumer)}都从第一行数据开始读取，
+ *     流式处理时先统计行数、收集去重信息，再逐行处理，处理完成后需要调用close释放资源
+ * </p>
+ *
+ * @param <T> excel行数据对应的java对象
+ *
+ * @author xiongzhao
+ * @date 2021/7/17
+ */
+public interface RowReader<T> extends Closeable {
+
+    /**
+     * 统计数据行数，不包含标题行和空行
+     * @return
+     */
+    int count();
+
+    /**
+     * 解析前低成本地预估数据行数，用于提前拒绝空文件和超大文件
+     * @param limit 最大允许的数据行数，超过后可以停止预估
+     * @return 数据行数的上限，超过limit时返回大于limit的值，无法预估时返回-1
+     */
+    default int estimate(int limit) {
+        return -1;
+    }
+
+    /**
+     * 逐行读取数据
+     * @param consumer 行数据消费者
+     */
+    void read(Consumer<T> consumer);
+
+    /**
+     * 按sheet拆分的读取器，不同sheet的读取器可以并发读取
+     * @return 单sheet时返回自身
+     */
+    default List<RowReader<T>> sheets() {
+        return Collections.singletonList(this);
+    }
+
+    /**
+     * 读取全部数据
+     * @return
+     */
+    default List<T> readAll() {
+        List<T> list = new ArrayList<>();
+        read(list::add);
+        return list;
+    }
+
+    /**
+     * 释放资源
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,90 @@
+package com.easy.framework.excel.reader;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 基于{@link ExcelSaxReader}的读取器，逐行解析xlsx的一个sheet
+ *
+ * @param <T> excel行数据对应的java对象
+ *
+ * @author xiongzhao
+ * @date 2021/7/17
+ */
+public class SaxRowReader<T> implements RowReader<T> {
+
+    /**
+     * 事件模式读取器
+     */
+    private final ExcelSaxReader saxReader;
+
+    /**
+     * 行映射器
+     */
+    private final BeanRowMapper<T> mapper;
+
+    /**
+     * 标题别名，key为标题，value为字段名
+     */
+    private final Map<String, String> headerAlias;
+
+    /**
+     * 最大允许的数据行数
+     */
+    private final int maxSize;
+
+    /**
+     * sheet序号，从0开始
+     */
+    private final int sheetIndex;
+
+    /**
+     * 构造
+     * @param saxReader 事件模式读取器
+     * @param mapper 行映射器
+     * @param headerAlias 标题别名，key为标题，value为字段名
+     * @param maxSize 最大允许的数据行数
+     */
+    public SaxRowReader(ExcelSaxReader saxReader, BeanRowMapper<T> mapper, Map<String, String> headerAlias, int maxSize) {
+        this(saxReader, mapper, headerAlias, maxSize, 0);
+    }
+
+    /**
+     * 构造，读取指定sheet，多个sheet的读取器可以共用一个事件模式读取器
+     * @param saxReader 事件模式读取器
+     * @param mapper 行映射器
+     * @param headerAlias 标题别名，key为标题，value为字段名
+     * @param maxSize 最大允许的数据行数
+     * @param sheetIndex sheet序号，从0开始
+     */
+    public SaxRowReader(ExcelSaxReader saxReader, BeanRowMapper<T> mapper, Map<String, String> headerAlias, int maxSize, int sheetIndex) {
+        this.saxReader = saxReader;
+        this.mapper = mapper;
+        this.headerAlias = headerAlias;
+        this.maxSize = maxSize;
+        this.sheetIndex = sheetIndex;
+    }
+
+    @Override
+    public int count() {
+        // 只计数，不转换对象
+        BeanRowHandler<T> rowHandler = new BeanRowHandler<>(mapper, headerAlias, maxSize, null);
+        saxReader.read(sheetIndex, rowHandler);
+        return rowHandler.getCount();
+    }
+
+    @Override
+    public int estimate(int limit) {
+        return saxReader.estimateRows(sheetIndex, limit);
+    }
+
+    @Override
+    public void read(Consumer<T> consumer) {
+        saxReader.read(sheetIndex, new BeanRowHandler<>(mapper, headerAlias, maxSize, consumer));
+    }
+
+    @Override
+    public void close() {
+        saxReader.close();
+    }
+}
@@ -0,0 +1,30 @@
+package com.easy.framework.excel.reader;
+
+import java.io.Closeable;
+
+/**
+ * xlsx共享字符串表
+ *
+ * <p>
+ *     单元格类型为s时，单元格的值为共享字符串表的下标.
+ *     实现需要支持多线程并发读取
+ * </p>
+ *
+ * @author xiongzhao
+ * @date 2021/8/7
+ */
+interface SharedStrings extends Closeable {
+
+    /**
+     * 获取指定下标的字符串
+     * @param idx 下标，从0开始
+     * @return
+     */
+    String getEntryAt(int idx);
+
+    /**
+     * 释放资源
+     */
+    @Override
+    void close();
+}
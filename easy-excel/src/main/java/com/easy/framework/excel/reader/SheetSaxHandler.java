@@ -0,0 +1,224 @@
+package com.easy.framework.excel.reader;
+
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * sheet xml的sax解析处理器
+ *
+ * <p>
+ *     只解析sheetData中的row、c、v、is/t节点，每解析完一行回调一次{@link RowHandler}，
+ *     {@link RowHandler#acceptColumn(int, int, int)}返回false的单元格直接跳过，
+ *     单元格值转换规则与hutool的CellUtil保持一致：字符串返回String，布尔返回Boolean，
+ *     日期格式的数字返回Date，整数返回Long，小数返回Double
+ * </p>
+ *
+ * @author xiongzhao
+ * @date 2021/7/10
+ */
+class SheetSaxHandler extends DefaultHandler {
+
+    /**
+     * sheet序号
+     */
+    private final int sheetIndex;
+
+    /**
+     * 共享字符串表
+     */
+    private final SharedStrings sharedStrings;
+
+    /**
+     * 样式表
+     */
+    private final StylesTable stylesTable;
+
+    /**
+     * 行处理器
+     */
+    private final RowHandler rowHandler;
+
+    /**
+     * 样式是否为日期格式的缓存
+     */
+    private final Map<Integer, Boolean> dateStyles = new HashMap<>();
+
+    /**
+     * 当前行的单元格值，行之间复用
+     */
+    private final List<Object> rowList = new ArrayList<>();
+
+    /**
+     * 单元格文本缓冲
+     */
+    private final StringBuilder value = new StringBuilder();
+
+    /**
+     * 当前行号
+     */
+    private int rowIndex = -1;
+
+    /**
+     * 当前列号
+     */
+    private int columnIndex = -1;
+
+    /**
+     * 当前单元格类型
+     */
+    private String cellType;
+
+    /**
+     * 当前单元格样式序号
+     */
+    private int styleIndex;
+
+    /**
+     * 是否正在读取单元格文本
+     */
+    private boolean readingValue;
+
+    /**
+     * 当前单元格是否跳过解析
+     */
+    private boolean skipCell;
+
+    SheetSaxHandler(int sheetIndex, SharedStrings sharedStrings, StylesTable stylesTable, RowHandler rowHandler) {
+        this.sheetIndex = sheetIndex;
+        this.sharedStrings = sharedStrings;
+        this.stylesTable = stylesTable;
+        this.rowHandler = rowHandler;
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+        String name = elementName(localName, qName);
+        if ("row".equals(name)) {
+            String r = attributes.getValue("r");
+            rowIndex = r != null ? Integer.parseInt(r) - 1 : rowIndex + 1;
+            columnIndex = -1;
+            rowList.clear();
+        } else if ("c".equals(name)) {
+            String r = attributes.getValue("r");
+            columnIndex = r != null ? columnIndex(r) : columnIndex + 1;
+            // 未投影的列不读取文本、不查询共享字符串、不做日期转换
+            skipCell = !rowHandler.acceptColumn(sheetIndex, rowIndex, columnIndex);
+            if (skipCell) {
+                return;
+            }
+            cellType = attributes.getValue("t");
+            String s = attributes.getValue("s");
+            styleIndex = s != null ? Integer.parseInt(s) : -1;
+            value.setLength(0);
+        } else if ("v".equals(name) || "t".equals(name)) {
+            readingValue = !skipCell;
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+        String name = elementName(localName, qName);
+        if ("v".equals(name) || "t".equals(name)) {
+            readingValue = false;
+        } else if ("c".equals(name) && !skipCell) {
+            while (rowList.size() < columnIndex) {
+                rowList.add(null);
+            }
+            rowList.add(cellValue());
+        } else if ("row".equals(name)) {
+            rowHandler.handle(sheetIndex, rowIndex, rowList);
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+        if (readingValue) {
+            value.append(ch, start, length);
+        }
+    }
+
+    /**
+     * 根据单元格类型转换单元格值
+     * @return
+     */
+    private Object cellValue() {
+        if (value.length() == 0) {
+            return null;
+        }
+        String text = value.toString();
+        if (cellType == null || "n".equals(cellType)) {
+            double d = Double.parseDouble(text);
+            if (isDateStyle(styleIndex)) {
+                return DateUtil.getJavaDate(d);
+            }
+            long l = (long) d;
+            return l == d ? (Object) l : (Object) d;
+        }
+        switch (cellType) {
+            case "s":
+                return sharedStrings.getEntryAt(Integer.parseInt(text));
+            case "b":
+                return "1".equals(text);
+            default:
+                // inlineStr、str(公式结果)、e(错误)、d(ISO日期)直接返回文本
+                return text;
+        }
+    }
+
+    /**
+     * 样式是否为日期格式
+     * @param styleIndex
+     * @return
+     */
+    private boolean isDateStyle(int styleIndex) {
+        if (styleIndex < 0 || stylesTable == null) {
+            return false;
+        }
+        Boolean isDate = dateStyles.get(styleIndex);
+        if (isDate == null) {
+            XSSFCellStyle style = stylesTable.getStyleAt(styleIndex);
+            isDate = style != null && DateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString());
+            dateStyles.put(styleIndex, isDate);
+        }
+        return isDate;
+    }
+
+    /**
+     * 单元格引用转列号，如：A1 -> 0，AB12 -> 27
+     * @param ref
+     * @return
+     */
+    static int columnIndex(String ref) {
+        int column = 0;
+        for (int i = 0; i < ref.length(); i++) {
+            char c = ref.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            column = column * 26 + (c - 'A' + 1);
+        }
+        return column - 1;
+    }
+
+    /**
+     * 去掉命名空间前缀的节点名称
+     * @param localName
+     * @param qName
+     * @return
+     */
+    private static String elementName(String localName, String qName) {
+        if (localName != null && !localName.isEmpty()) {
+            return localName;
+        }
+        int i = qName.indexOf(':');
+        return i < 0 ? qName : qName.substring(i + 1);
+    }
+}
@@ -1,5 +1,6 @@
 package com.easy.framework.excel.service.common;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -8,7 +9,8 @@ import java.util.concurrent.TimeUnit;
  * <p>
  *     功能:
  *     1. 用于缓存excel上传/下载任务执行进度;
- *     2. 用于保存excel上传时,处理失败的行的失败原因.
+ *     2. 用于保存excel上传时,处理失败的行的失败原因;
+ *     3. 用于记录已导入数据的布隆过滤器,跨任务过滤重复上传的数据.
  *     用法:
  *     业务系统需要对该接口进行实现,如分布式使用redis缓存,单机使用本地缓存,
  *     单个业务只能在spring中有一个实现被注册,否则会出现多个bean的错误,sdk
@@ -70,4 +72,79 @@ public interface CacheService {
      * @return
      */
     boolean del(String key);
+
+    /**
+     * 值等于expect时删除key，比较和删除为原子操作
+     * <p>
+     *     用于只释放自己持有的锁. 默认实现仅在当前实例内原子，分布式部署时需要覆盖实现，
+     *     {@link RedissonCacheService}基于RBucket#compareAndSet实现
+     * </p>
+     * @param key
+     * @param expect 期望的值
+     * @return 删除成功返回true，值不等于expect或key不存在时返回false
+     */
+    default boolean compareAndDelete(String key, String expect) {
+        synchronized (this) {
+            return expect.equals(get(key)) && del(key);
+        }
+    }
+
+    /**
+     * 值等于expect时写入value并重新设置过期时间，比较和写入为原子操作
+     * <p>
+     *     用于续期或接管自己持有的锁. 默认实现仅在当前实例内原子，分布式部署时需要覆盖实现，
+     *     {@link RedissonCacheService}基于lua脚本实现
+     * </p>
+     * @param key
+     * @param expect 期望的值
+     * @param value
+     * @param times
+     * @param timeUnit
+     * @return 写入成功返回true，值不等于expect或key不存在时返回false
+     */
+    default boolean compareAndSet(String key, String expect, String value, long times, TimeUnit timeUnit) {
+        synchronized (this) {
+            if (!expect.equals(get(key))) {
+                return false;
+            }
+            setEx(key, value, times, timeUnit);
+            return true;
+        }
+    }
+
+    /**
+     * 批量判断布隆过滤器中是否可能包含元素
+     * <p>
+     *     默认使用本地内存中的布隆过滤器，分布式部署时需要覆盖实现，{@link RedissonCacheService}基于RBloomFilter实现
+     * </p>
+     * @param key
+     * @param values
+     * @return 与values一一对应，true表示可能包含，false表示一定不包含
+     */
+    default List<Boolean> bfContains(String key, List<String> values) {
+        LocalBloomFilter filter = LocalBloomFilter.get(key);
+        List<Boolean> result = new ArrayList<>(values.size());
+        for (String value : values) {
+            result.add(filter != null && filter.mightContain(value));
+        }
+        return result;
+    }
+
+    /**
+     * 向可扩展的布隆过滤器中批量添加元素，不存在时创建
+     * <p>
+     *     元素数超过容量时自动扩展，新一层容量翻倍、误判率减半，总误判率不超过fpp.
+     *     默认使用本地内存中的布隆过滤器，分布式部署时需要覆盖实现
+     * </p>
+     * @param key
+     * @param values
+     * @param expectedInsertions 初始容量
+     * @param fpp 误判率
+     * @param times 过期时间，本地实现每次写入时刷新，{@link RedissonCacheService}在每一层创建时设置
+     * @param timeUnit
+     */
+    default void bfAdd(String key, List<String> values, long expectedInsertions, double fpp, long times, TimeUnit timeUnit) {
+        LocalBloomFilter filter = LocalBloomFilter.getOrCreate(key, expectedInsertions, fpp, times, timeUnit);
+        values.forEach(filter::put);
+    }
 }
@@ -0,0 +1,122 @@
+package com.easy.framework.excel.service.common;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于guava的本地可扩展布隆过滤器，{@link CacheService}布隆过滤器方法的默认实现
+ *
+ * <p>
+ *     由多层过滤器组成，当前层的元素数达到容量后新增一层，新一层的容量翻倍、误判率减半，
+ *     总误判率不超过初始化时指定的误判率. 仅在当前jvm内有效
+ * </p>
+ *
+ * @author xiongzhao
+ * @date 2021/8/28
+ */
+class LocalBloomFilter {
+
+    /**
+     * 本地布隆过滤器，key为缓存key
+     */
+    private static final Map<String, LocalBloomFilter> FILTERS = new ConcurrentHashMap<>();
+
+    /**
+     * 每层过滤器
+     */
+    private final List<BloomFilter<CharSequence>> layers = new ArrayList<>();
+
+    /**
+     * 第一层的容量
+     */
+    private final long expectedInsertions;
+
+    /**
+     * 总误判率
+     */
+    private final double fpp;
+
+    /**
+     * 过期时间
+     */
+    private volatile long expireAt;
+
+    private LocalBloomFilter(long expectedInsertions, double fpp) {
+        this.expectedInsertions = expectedInsertions;
+        this.fpp = fpp;
+        addLayer();
+    }
+
+    /**
+     * 获取布隆过滤器，不存在或已过期时返回null
+     * @param key
+     * @return
+     */
+    static LocalBloomFilter get(String key) {
+        LocalBloomFilter filter = FILTERS.get(key);
+        if (filter != null && filter.expireAt < System.currentTimeMillis()) {
+            FILTERS.remove(key, filter);
+            return null;
+        }
+        return filter;
+    }
+
+    /**
+     * 获取布隆过滤器，不存在时创建，并刷新过期时间
+     * @param key
+     * @param expectedInsertions 第一层的容量
+     * @param fpp 总误判率
+     * @param times
+     * @param timeUnit
+     * @return
+     */
+    static LocalBloomFilter getOrCreate(String key, long expectedInsertions, double fpp, long times, TimeUnit timeUnit) {
+        LocalBloomFilter filter = get(key);
+        if (filter == null) {
+            filter = FILTERS.computeIfAbsent(key, k -> new LocalBloomFilter(expectedInsertions, fpp));
+        }
+        filter.expireAt = System.currentTimeMillis() + timeUnit.toMillis(times);
+        return filter;
+    }
+
+    /**
+     * 是否可能包含元素
+     * @param value
+     * @return
+     */
+    synchronized boolean mightContain(String value) {
+        for (int i = layers.size() - 1; i >= 0; i--) {
+            if (layers.get(i).mightContain(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 添加元素，当前层已满时新增一层
+     * @param value
+     */
+    synchronized void put(String value) {
+        BloomFilter<CharSequence> layer = layers.get(layers.size() - 1);
+        if (layer.approximateElementCount() >= expectedInsertions << (layers.size() - 1)) {
+            layer = addLayer();
+        }
+        layer.put(value);
+    }
+
+    private BloomFilter<CharSequence> addLayer() {
+        int n = layers.size();
+        BloomFilter<CharSequence> layer = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8),
+                expectedInsertions << n, fpp / (2L << n));
+        layers.add(layer);
+        return layer;
+    }
+}
@@ -1,8 +1,17 @@
 package com.easy.framework.excel.service.common;
 
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.Longs;
+import org.redisson.api.RBatch;
+import org.redisson.api.RBitSetAsync;
+import org.redisson.api.RFuture;
+import org.redisson.api.RScript;
 import org.redisson.api.RedissonClient;
 
 import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -16,6 +25,32 @@ import java.util.concurrent.TimeUnit;
  */
 public class RedissonCacheService implements CacheService{
 
+    /**
+     * 布隆过滤器当前层号的key后缀
+     */
+    private static final String BLOOM_LAYERS_SUFFIX = ":layers";
+
+    /**
+     * 布隆过滤器参数的key后缀
+     */
+    private static final String BLOOM_META_SUFFIX = ":meta";
+
+    /**
+     * 布隆过滤器每层元素数的key后缀
+     */
+    private static final String BLOOM_COUNT_SUFFIX = ":count";
+
+    /**
+     * 值等于ARGV[1]时写入ARGV[2]，过期时间为格式化参数（毫秒）.
+     * 脚本参数按客户端的编码序列化，过期时间不能作为参数传入
+     */
+    private static final String COMPARE_AND_SET_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then "
+                    + "redis.call('psetex', KEYS[1], %d, ARGV[2]); "
+                    + "return 1; "
+                    + "end; "
+                    + "return 0;";
+
     /**
      * redissonClient 客户端
      */
@@ -56,4 +91,199 @@ public class RedissonCacheService implements CacheService{
     public boolean del(String key) {
         return redissonClient.getBucket(key).delete();
     }
+
+    @Override
+    public boolean compareAndDelete(String key, String expect) {
+        return redissonClient.getBucket(key).compareAndSet(expect, null);
+    }
+
+    /**
+     * 通过lua脚本在redis中比较并写入，值按客户端的编码比较
+     */
+    @Override
+    public boolean compareAndSet(String key, String expect, String value, long times, TimeUnit timeUnit) {
+        String script = String.format(COMPARE_AND_SET_SCRIPT, timeUnit.toMillis(times));
+        Long result = redissonClient.getScript().eval(RScript.Mode.READ_WRITE, script, RScript.ReturnType.INTEGER,
+                Collections.singletonList(key), expect, value);
+        return result != null && result == 1L;
+    }
+
+    /**
+     * 一次读取所有层中每个元素的全部位，任一层的位全部为1即为可能包含
+     *
+     * <p>
+     *     先读取层数和过滤器参数，位下标在本地计算，所有GETBIT命令通过RBatch一次发送，共2次网络往返，与元素个数无关
+     * </p>
+     */
+    @Override
+    public List<Boolean> bfContains(String key, List<String> values) {
+        List<Boolean> result = new ArrayList<>(Collections.nCopies(values.size(), false));
+        BloomMeta meta = bloomMeta(key);
+        if (meta == null) {
+            return result;
+        }
+
+        RBatch batch = redissonClient.createBatch();
+        List<List<RFuture<Boolean>>> bits = new ArrayList<>(values.size());
+        for (String value : values) {
+            long[] hash = bloomHash(value);
+            List<RFuture<Boolean>> valueBits = new ArrayList<>();
+            for (int n = 0; n <= meta.layers; n++) {
+                RBitSetAsync layer = batch.getBitSet(key + ":" + n);
+                for (long index : meta.indexes(hash, n)) {
+                    valueBits.add(layer.getAsync(index));
+                }
+            }
+            bits.add(valueBits);
+        }
+        batch.execute();
+
+        for (int i = 0; i < values.size(); i++) {
+            List<RFuture<Boolean>> valueBits = bits.get(i);
+            int offset = 0;
+            for (int n = 0; n <= meta.layers && !result.get(i); n++) {
+                int k = meta.hashCount(n);
+                result.set(i, valueBits.subList(offset, offset + k).stream().allMatch(RFuture::getNow));
+                offset += k;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 每一层为一个位图，key为{key}:{层号}，已写入的元素数保存在{key}:{层号}:count中，当前层号保存在{key}:layers中，
+     * 容量和误判率保存在{key}:meta中. 当前层元素数超过容量时新增一层，新一层容量翻倍、误判率减半.
+     *
+     * <p>
+     *     先通过计数器预占容量，再将所有SETBIT命令通过RBatch一次发送，不扩容时共3次网络往返，与元素个数无关.
+     *     过期时间在每一层创建时设置一次，同时刷新层号和参数的过期时间
+     * </p>
+     */
+    @Override
+    public void bfAdd(String key, List<String> values, long expectedInsertions, double fpp, long times, TimeUnit timeUnit) {
+        if (values.isEmpty()) {
+            return;
+        }
+        BloomMeta meta = bloomMeta(key);
+        if (meta == null) {
+            redissonClient.getBucket(key + BLOOM_META_SUFFIX).trySet(expectedInsertions + "," + fpp, times, timeUnit);
+            meta = bloomMeta(key);
+        }
+
+        // 预占当前层的容量，已满时新增一层
+        int n = meta.layers;
+        long count = redissonClient.getAtomicLong(key + ":" + n + BLOOM_COUNT_SUFFIX).addAndGet(values.size());
+        while (count > meta.capacity(n) && count != values.size()) {
+            redissonClient.getAtomicLong(key + BLOOM_LAYERS_SUFFIX).compareAndSet(n, n + 1);
+            n = (int) redissonClient.getAtomicLong(key + BLOOM_LAYERS_SUFFIX).get();
+            count = redissonClient.getAtomicLong(key + ":" + n + BLOOM_COUNT_SUFFIX).addAndGet(values.size());
+        }
+
+        RBatch batch = redissonClient.createBatch();
+        RBitSetAsync layer = batch.getBitSet(key + ":" + n);
+        for (String value : values) {
+            for (long index : meta.indexes(bloomHash(value), n)) {
+                layer.setAsync(index);
+            }
+        }
+        if (count == values.size()) {
+            // 本次写入创建了该层
+            layer.expireAsync(times, timeUnit);
+            batch.getAtomicLong(key + ":" + n + BLOOM_COUNT_SUFFIX).expireAsync(times, timeUnit);
+            batch.getAtomicLong(key + BLOOM_LAYERS_SUFFIX).expireAsync(times, timeUnit);
+            batch.getBucket(key + BLOOM_META_SUFFIX).expireAsync(times, timeUnit);
+        }
+        batch.execute();
+    }
+
+    /**
+     * 一次读取过滤器的层号和参数
+     * @param key
+     * @return 过滤器不存在时返回null
+     */
+    private BloomMeta bloomMeta(String key) {
+        RBatch batch = redissonClient.createBatch();
+        RFuture<Long> layers = batch.getAtomicLong(key + BLOOM_LAYERS_SUFFIX).getAsync();
+        RFuture<Object> meta = batch.getBucket(key + BLOOM_META_SUFFIX).getAsync();
+        batch.execute();
+        if (meta.getNow() == null) {
+            return null;
+        }
+        String[] params = meta.getNow().toString().split(",");
+        return new BloomMeta(layers.getNow().intValue(), Long.parseLong(params[0]), Double.parseDouble(params[1]));
+    }
+
+    /**
+     * 元素的128位murmur3哈希
+     * @param value
+     * @return
+     */
+    private static long[] bloomHash(String value) {
+        byte[] bytes = Hashing.murmur3_128().hashString(value, StandardCharsets.UTF_8).asBytes();
+        return new long[]{Longs.fromBytes(bytes[7], bytes[6], bytes[5], bytes[4], bytes[3], bytes[2], bytes[1], bytes[0]),
+                Longs.fromBytes(bytes[15], bytes[14], bytes[13], bytes[12], bytes[11], bytes[10], bytes[9], bytes[8])};
+    }
+
+    /**
+     * 布隆过滤器参数
+     */
+    private static class BloomMeta {
+
+        /**
+         * 当前层号
+         */
+        private final int layers;
+
+        /**
+         * 第一层的容量
+         */
+        private final long expectedInsertions;
+
+        /**
+         * 总误判率
+         */
+        private final double fpp;
+
+        BloomMeta(int layers, long expectedInsertions, double fpp) {
+            this.layers = layers;
+            this.expectedInsertions = expectedInsertions;
+            this.fpp = fpp;
+        }
+
+        /**
+         * 第n层的容量
+         */
+        long capacity(int n) {
+            return expectedInsertions << n;
+        }
+
+        /**
+         * 第n层的位数
+         */
+        long bitSize(int n) {
+            double p = fpp / (2L << n);
+            return (long) Math.ceil(-capacity(n) * Math.log(p) / (Math.log(2) * Math.log(2)));
+        }
+
+        /**
+         * 第n层的哈希函数个数
+         */
+        int hashCount(int n) {
+            return Math.max(1, (int) Math.round((double) bitSize(n) / capacity(n) * Math.log(2)));
+        }
+
+        /**
+         * 元素在第n层的位下标，按照两个64位哈希组合生成
+         */
+        long[] indexes(long[] hash, int n) {
+            long bits = bitSize(n);
+            long[] indexes = new long[hashCount(n)];
+            long combined = hash[0];
+            for (int i = 0; i < indexes.length; i++) {
+                indexes[i] = (combined & Long.MAX_VALUE) % bits;
+                combined += hash[1];
+            }
+            return indexes;
+        }
+    }
 }
@@ -2,37 +2,55 @@ package com.easy.framework.excel.service.upload;
 
 import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.exceptions.ValidateException;
+import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.io.IoUtil;
 import cn.hutool.core.lang.Validator;
 import cn.hutool.poi.excel.ExcelReader;
 import cn.hutool.poi.excel.ExcelUtil;
 import cn.hutool.poi.excel.ExcelWriter;
+import cn.hutool.poi.excel.cell.CellUtil;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
+import com.easy.framework.core.domain.rpc.request.ValidationResult;
 import com.easy.framework.core.exception.ServiceException;
 import com.easy.framework.excel.constant.CacheConstant;
 import com.easy.framework.excel.domain.common.Task;
+import com.easy.framework.excel.domain.common.TaskCheckpoint;
 import com.easy.framework.excel.domain.upload.BaseRow;
 import com.easy.framework.excel.domain.upload.UploadContext;
+import com.easy.framework.excel.enums.ReadMode;
+import com.easy.framework.excel.reader.BeanRowMapper;
+import com.easy.framework.excel.reader.CsvRowReader;
+import com.easy.framework.excel.reader.ExcelSaxReader;
+import com.easy.framework.excel.reader.ListRowReader;
+import com.easy.framework.excel.reader.MultiSheetRowReader;
+import com.easy.framework.excel.reader.RowBinding;
+import com.easy.framework.excel.reader.RowReader;
+import com.easy.framework.excel.reader.SaxRowReader;
 import com.easy.framework.excel.service.common.CacheService;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
+import com.google.common.collect.Maps;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
 import javax.annotation.Resource;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.ParameterizedType;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import static com.easy.framework.excel.constant.CacheConstant.UPLOAD_EXCEL_CANCEL;
 import static com.easy.framework.excel.constant.CacheConstant.UPLOAD_EXCEL_PROGRESS;
 import static java.util.stream.Collectors.toList;
 
@@ -59,6 +77,21 @@ abstract public class AbstractExcelUploadService<T extends BaseRow, C extends Up
      */
     private Class<T> entityClass;
 
+    /**
+     * 实体类型的行映射器，首次读取excel时创建
+     */
+    private volatile BeanRowMapper<T> rowMapper;
+
+    /**
+     * 本节点执行中的任务，key为taskId
+     */
+    private final Map<String, RunningTask> runningTasks = new ConcurrentHashMap<>();
+
+    /**
+     * 虚拟线程业务处理的并发许可，首次使用时按照{@link ExcelUploadService#maxConcurrentHandles()}创建
+     */
+    private volatile Semaphore handlePermits;
+
     /**
      * lock key前缀
      */
@@ -70,6 +103,47 @@ abstract public class AbstractExcelUploadService<T extends BaseRow, C extends Up
     protected static ExecutorService executorService = new ThreadPoolExecutor(4, 10,
             1, TimeUnit.MINUTES, new ArrayBlockingQueue<>(100, true));
 
+    /**
+     * 业务处理批次和多sheet读取的默认线程池，与执行上传任务的线程池分开，线程不会被等待批次结果的上传任务占用
+     */
+    protected static ExecutorService batchExecutorService = new ThreadPoolExecutor(4, 4,
+            1, TimeUnit.MINUTES, new LinkedBlockingQueue<>());
+
+    /**
+     * 默认线程池上各任务业务处理批次的公平调度
+     */
+    private static final FairScheduler FAIR_SCHEDULER = new FairScheduler();
+
+    /**
+     * 流水线处理时每个阶段的队列容量（块数）
+     */
+    private static final int PIPELINE_QUEUE_SIZE = 2;
+
+    /**
+     * 检查缓存中取消标记的最小间隔，毫秒
+     */
+    private static final long CANCEL_CHECK_INTERVAL = 1000L;
+
+    /**
+     * 等待批次结果时没有可执行的批次，再次检查的间隔，毫秒
+     */
+    private static final long HELP_INTERVAL_MILLIS = 100L;
+
+    /**
+     * 任务取消的提示
+     */
+    private static final String CANCELLED_MESSAGE = "任务已取消。";
+
+    /**
+     * 业务处理重试的最大退避时间，毫秒
+     */
+    private static final long MAX_RETRY_BACKOFF_MILLIS = 10_000L;
+
+    /**
+     * 并发校验时每个分片的最小行数
+     */
+    private static final int VALIDATE_SPLIT_SIZE = 1000;
+
     /**
      * AbstractService
      */
@@ -81,19 +155,19 @@ abstract public class AbstractExcelUploadService<T extends BaseRow, C extends Up
     @Override
     public void execute(C context, boolean isParallel) {
         // 预处理
-        List<T> list = beforeProcess(context);
+        PreparedProcess process = this.prepare(context, isParallel, null);
 
         // 同步执行业务逻辑
-        this.doProcess(context, list, isParallel, null);
+        process.run();
     }
 
     @Override
     public void asyncExecute(C context, boolean isParallel) {
         // 预处理
-        List<T> list = beforeProcess(context);
+        PreparedProcess process = this.prepare(context, isParallel, null);
 
         // 异步执行业务逻辑
-        executorService.execute(() -> this.doProcess(context, list, isParallel, null));
+        submit(executorService, process, context);
     }
 
     @Override
@@ -104,10 +178,86 @@ abstract public class AbstractExcelUploadService<T extends BaseRow, C extends Up
         }
 
         // 预处理
-        List<T> list = beforeProcess(context);
+        PreparedProcess process = this.prepare(context, isParallel, executor);
 
         // 异步执行业务逻辑
-        executor.execute(() -> this.doProcess(context, list, isParallel, executor));
+        submit(executor, process, context);
+    }
+
+    /**
+     * 提交业务处理过程，线程池拒绝时释放预处理占用的锁、检查点和落盘文件
+     * @param pool
+     * @param process
+     * @param context
+     */
+    private void submit(ExecutorService pool, PreparedProcess process, C context) {
+        try {
+            pool.execute(process);
+        } catch (RejectedExecutionException e) {
+            process.discard.run();
+            log.info("通用上传任务，taskId={}，线程池已满，任务被拒绝", context.getTaskId());
+            throw new ServiceException("当前导入任务较多，请稍后再试。");
+        }
+    }
+
+    /**
+     * 预处理，返回业务处理过程
+     *
+     * <p>
+     *     流式处理时预处理只统计行数、收集重复key，数据在业务处理过程中逐块读取
+     * </p>
+     * @param context
+     * @param isParallel
+     * @param executor
+     * @return
+     */
+    private PreparedProcess prepare(C context, boolean isParallel, ExecutorService executor) {
+        if (isStreaming()) {
+            FingerprintSet duplicationKeys = new FingerprintSet();
+            RowReader<T> reader = beforeStreamProcess(context, duplicationKeys, executor);
+            return new PreparedProcess(() -> this.doStreamProcess(context, reader, duplicationKeys, isParallel, executor), () -> {
+                IoUtil.close(reader);
+                unLock(context);
+                deleteLocalFile(context);
+            });
+        }
+        List<T> list = beforeProcess(context, executor, false);
+        Checkpointer<T> checkpointer = checkpointEnabled()
+                ? Checkpointer.create(cacheService, context, entityClass, isParallel, partSize()) : null;
+        return new PreparedProcess(() -> this.doProcess(context, list, isParallel, executor, checkpointer), () -> {
+            unLock(context);
+            if (checkpointer != null) {
+                // 停止心跳，任务没有开始执行，不保留检查点
+                checkpointer.clear();
+            }
+            deleteLocalFile(context);
+        });
+    }
+
+    /**
+     * 预处理完成的业务处理过程
+     */
+    private static final class PreparedProcess implements Runnable {
+
+        /**
+         * 业务处理
+         */
+        private final Runnable process;
+
+        /**
+         * 业务处理没有执行时，释放预处理占用的资源
+         */
+        private final Runnable discard;
+
+        PreparedProcess(Runnable process, Runnable discard) {
+            this.process = process;
+            this.discard = discard;
+        }
+
+        @Override
+        public void run() {
+            process.run();
+        }
     }
 
     /**
@@ -120,49 +270,27 @@ abstract public class AbstractExcelUploadService<T extends BaseRow, C extends Up
      *     4. excel最大行数校验
      * </p>
      * @param context
+     * @param executor 多sheet并发解析使用的线程池
+     * @param resumed 是否续传，续传时已加锁，读取检查点记录的落盘文件，异常时保留落盘文件
      * @return
      */
-    private List<T> beforeProcess(C context) {
+    private List<T> beforeProcess(C context, ExecutorService executor, boolean resumed) {
         // 任务id
         String taskId = context.getTaskId();
 
         long start = System.currentTimeMillis();
 
-        ExcelReader reader = null;
-
-        InputStream inputStream = null;
+        RowReader<T> reader = null;
 
         try {
             log.info("通用上传任务，taskId={}，任务开始...", taskId);
 
-            // 校验入参
-            checkContext(context);
-
-            // 同一时间同一个用户只能有一个任务进行
-            boolean b = lock(context);
-            if (!b) {
-                log.info("通用上传任务，taskId={}，有任务正在处理中，忽略本次任务。", taskId);
-                throw new ServiceException("您当前有导入任务正在处理中，请耐心等待任务完成，稍后再试。");
-            }
-
-            // 读取Excel
-            inputStream = context.getFile().getInputStream();
-            reader = ExcelUtil.getReader(inputStream);
-
-            // 指定excel标题别名
-            LinkedHashMap<String, String> headerAlias = addHeaderAlias();
-            if (MapUtils.isEmpty(headerAlias)) {
-                log.warn("通用上传任务，taskId={}，excel标题别名不能为空。", taskId);
-                throw new ServiceException("excel标题别名不能为空");
-            }
-            Iterator<Map.Entry<String, String>> iter = headerAlias.entrySet().iterator();
-            while (iter.hasNext()) {
-                Map.Entry<String, String> entry = iter.next();
-                reader.addHeaderAlias(entry.getValue(), entry.getKey());
-            }
+            // 校验入参、加锁
+            LinkedHashMap<String, String> headerAlias = prepareRead(context, resumed);
 
-            // 转实体列表
-            List<T> list = this.readAll(reader, entityClass);
+            // 读取Excel，转实体列表
+            reader = openReader(context, headerAlias, start);
+            List<T> list = readSheets(reader, executor);
 
             log.info("通用上传任务，taskId={}，excel解析完成，总行数{}，耗时{}毫秒，总耗时{}毫秒",
                     taskId,
@@ -171,216 +299,1620 @@ abstract public class AbstractExcelUploadService<T extends BaseRow, C extends Up
                     System.currentTimeMillis() - start);
 
             // 校验
-            if (CollectionUtils.isEmpty(list)) {
-                log.info("通用上传任务，taskId={}，上传文件为空，任务结束，总耗时{}毫秒", taskId, System.currentTimeMillis() - start);
-                throw new ServiceException("上传文件不能为空");
-            }
-
-            if (list.size() > getMaxSize()) {
-                log.info("通用上传任务，taskId={}，excel超过最大行数，任务结束，总耗时{}毫秒", taskId, System.currentTimeMillis() - start);
-                throw new ServiceException("上传文件最大行数不能超过" + getMaxSize() + "行");
-            }
+            checkSize(taskId, CollectionUtils.isEmpty(list) ? 0 : list.size(), start);
 
             return list;
 
         } catch (ValidateException ve) {
-            // 异常需要释放锁
+            // 异常需要释放锁，续传时保留落盘文件
             unLock(context);
+            if (!resumed) {
+                deleteLocalFile(context);
+            }
             log.error(ve.getMessage());
             throw new ServiceException(ve.getMessage());
         } catch (Exception e) {
-            // 异常需要释放锁
+            // 异常需要释放锁，续传时保留落盘文件
             unLock(context);
+            if (!resumed) {
+                deleteLocalFile(context);
+            }
             log.error("上传Excel失败，" + e.getMessage(), e);
             throw new ServiceException("上传Excel失败，" + e.getMessage());
         } finally {
             IoUtil.close(reader);
-            IoUtil.close(inputStream);
         }
     }
 
     /**
-     * 执行具体业务
+     * 流式处理预处理
+     *
+     * <p>
+     *     1. context校验
+     *     2. 打开excel读取器
+     *     3. 统计行数，需要去重时收集重复的key
+     *     4. excel非空校验
+     *     5. excel最大行数校验
+     * </p>
      * @param context
-     * @param list
+     * @param duplicationKeys 用于接收重复的key
+     * @param executor 多sheet并发预读使用的线程池
+     * @return 未关闭的读取器，业务处理完成后关闭
      */
-    private void doProcess(C context, List<T> list, boolean isParallel, ExecutorService executor) {
+    private RowReader<T> beforeStreamProcess(C context, FingerprintSet duplicationKeys, ExecutorService executor) {
         // 任务id
         String taskId = context.getTaskId();
 
         long start = System.currentTimeMillis();
 
+        RowReader<T> reader = null;
+
         try {
+            log.info("通用上传任务，taskId={}，流式任务开始...", taskId);
 
-            // 总行数
-            int totalSize = list.size();
+            // 校验入参、加锁
+            LinkedHashMap<String, String> headerAlias = prepareRead(context, false);
 
-            // 初始化任务总行数
-            context.getTask().setTotal(totalSize);
-            // 更新任务进度
-            updateTask(context, 0, 0, null);
+            // 打开Excel
+            reader = openReader(context, headerAlias, start);
 
-            // 1. 数据去重
-            long validStart = System.currentTimeMillis();
-            int validSize = totalSize;
-            List<T> validList = this.deDuplication(deDuplicationKey(), list, context, duplicationErrorMessage());
-            // 更新任务进度
-            int failNums = validSize - (CollectionUtils.isEmpty(validList) ? 0 : validList.size());
-            updateTask(context, failNums, 0, null);
-            log.info("通用上传任务，taskId={}，完成数据去重校验，过滤出重复数据{}条，耗时{}毫秒，总耗时{}毫秒",
-                    taskId,
-                    failNums,
-                    System.currentTimeMillis() - validStart,
-                    System.currentTimeMillis() - start);
+            // 统计行数，收集重复key
+            int total = countRows(reader, deDuplicationKeys(), duplicationKeys, executor);
 
+            log.info("通用上传任务，taskId={}，excel预读完成，总行数{}，重复key{}个，耗时{}毫秒",
+                    taskId, total, duplicationKeys.size(), System.currentTimeMillis() - start);
 
-            // 2. 非空校验，格式校验等
-            validStart = System.currentTimeMillis();
-            validSize = validList.size();
-            validList = validList.stream().filter(item -> this.validate(item, context)).collect(toList());
-            // 更新任务进度
-            failNums = validSize - (CollectionUtils.isEmpty(validList) ? 0 : validList.size());
-            updateTask(context, failNums, 0, null);
-            log.info("通用上传任务，taskId={}，完成数据非空、格式等基本校验，过滤出无效数据{}条，耗时{}毫秒，总耗时{}毫秒",
-                    taskId,
-                    failNums,
-                    System.currentTimeMillis() - validStart,
-                    System.currentTimeMillis() - start);
+            // 校验
+            checkSize(taskId, total, start);
 
-            if (CollectionUtils.isEmpty(validList)) {
-                log.info("通用上传任务，taskId={}，excel中没有有效数据(非空、格式等基本校验)，总耗时{}毫秒", taskId, System.currentTimeMillis() - start);
-                updateTask(context, 0, "excel中没有有效数据。");
-                return;
+            context.getTask().setTotal(total);
+            return reader;
+
+        } catch (ValidateException ve) {
+            // 异常需要释放锁
+            IoUtil.close(reader);
+            unLock(context);
+            deleteLocalFile(context);
+            log.error(ve.getMessage());
+            throw new ServiceException(ve.getMessage());
+        } catch (Exception e) {
+            // 异常需要释放锁
+            IoUtil.close(reader);
+            unLock(context);
+            deleteLocalFile(context);
+            log.error("上传Excel失败，" + e.getMessage(), e);
+            throw new ServiceException("上传Excel失败，" + e.getMessage());
+        }
+    }
+
+    /**
+     * 校验入参，加锁，获取标题别名
+     * @param context
+     * @param resumed 是否续传，续传时已加锁
+     * @return 标题别名，key为字段名，value为标题
+     */
+    private LinkedHashMap<String, String> prepareRead(C context, boolean resumed) {
+        // 任务id
+        String taskId = context.getTaskId();
+
+        if (!resumed) {
+            // 校验入参
+            checkContext(context);
+
+            // 同一时间同一个用户只能有一个任务进行
+            boolean b = lock(context);
+            if (!b) {
+                log.info("通用上传任务，taskId={}，有任务正在处理中，忽略本次任务。", taskId);
+                throw new ServiceException("您当前有导入任务正在处理中，请耐心等待任务完成，稍后再试。");
             }
+        }
 
-            // 3. 字段业务校验
-            validStart = System.currentTimeMillis();
-            validSize = validList.size();
-            validList = filterList(validList, context);
-            // 更新任务进度
-            failNums = validSize - (CollectionUtils.isEmpty(validList) ? 0 : validList.size());
-            updateTask(context, failNums, 0, null);
+        // 指定excel标题别名
+        LinkedHashMap<String, String> headerAlias = addHeaderAlias();
+        if (MapUtils.isEmpty(headerAlias)) {
+            log.warn("通用上传任务，taskId={}，excel标题别名不能为空。", taskId);
+            throw new ServiceException("excel标题别名不能为空");
+        }
+        return headerAlias;
+    }
 
-            log.info("通用上传任务，taskId={}，完成业务数据校验，过滤出无效数据{}条，耗时{}毫秒，总耗时{}毫秒",
-                    taskId,
-                    failNums,
-                    System.currentTimeMillis() - validStart,
-                    System.currentTimeMillis() - start);
+    /**
+     * 打开excel读取器
+     *
+     * <p>
+     *     用户模式读取时直接解析为实体列表，事件模式读取时返回逐行解析的读取器.
+     *     解析前先根据sheet元数据或低成本扫描预估行数，空文件和超过最大行数的文件直接拒绝，不再完整解析
+     * </p>
+     * @param context
+     * @param headerAlias 标题别名，key为字段名，value为标题
+     * @param start 任务开始时间
+     * @return
+     * @throws IOException
+     */
+    private RowReader<T> openReader(C context, LinkedHashMap<String, String> headerAlias, long start) throws IOException {
+        ExcelReader reader = null;
 
-            if (CollectionUtils.isEmpty(validList)) {
-                log.info("通用上传任务，taskId={}，excel中没有有效数据，总耗时{}毫秒", taskId, System.currentTimeMillis() - start);
-                updateTask(context, 0, "excel中没有有效数据。");
-                return;
+        InputStream inputStream = null;
+
+        try {
+            // 上传文件落盘，csv需要基于文件做内存映射，事件模式需要按路径打开，续传时已有落盘文件
+            boolean csv = isCsv(context);
+            boolean sax = readMode() == ReadMode.SAX;
+            File localFile = context.getLocalFile() != null ? context.getLocalFile()
+                    : spoolFile() || csv || sax || checkpointEnabled() ? spool(context) : null;
+            if (localFile == null) {
+                inputStream = context.getFile().getInputStream();
             }
 
-            // 4. 进行业务逻辑处理
-            long bizStart = System.currentTimeMillis();                              // 业务操作开始时间
-            List<List<T>> partList = Lists.partition(validList, partSize());         // 按照partSize分片处理
+            Map<String, String> titleToField = Maps.newHashMapWithExpectedSize(headerAlias.size());
+            headerAlias.forEach((field, title) -> titleToField.put(title, field));
+            if (csv) {
+                // csv直接解析映射的文件内容
+                return preflight(context, new CsvRowReader<>(localFile, csvCharset(), rowMapper(), titleToField, getMaxSize()), start);
+            }
 
-            if (isParallel) {
-                this.doParallelHandle(context, partList, start, executor);
+            if (sax) {
+                // 事件模式按文件路径逐行读取
+                ExcelSaxReader saxReader = new ExcelSaxReader(localFile);
+                saxReader.setDiskSharedStrings(diskSharedStrings());
+                if (!readAllSheets()) {
+                    return preflight(context, new SaxRowReader<>(saxReader, rowMapper(), titleToField, getMaxSize()), start);
+                }
+                // 多个sheet共用一个事件模式读取器，可以并发读取
+                List<RowReader<T>> sheets = new ArrayList<>();
+                try {
+                    for (int i = 0, sheetCount = saxReader.getSheetCount(); i < sheetCount; i++) {
+                        sheets.add(new SaxRowReader<>(saxReader, rowMapper(), titleToField, getMaxSize(), i));
+                    }
+                } catch (RuntimeException e) {
+                    saxReader.close();
+                    throw e;
+                }
+                return preflight(context, new MultiSheetRowReader<>(sheets), start);
+            }
+
+            if (localFile != null && "xlsx".equalsIgnoreCase(FileUtil.extName(localFile))) {
+                // 落盘的xlsx在构建工作簿之前预检
+                try (ExcelSaxReader saxReader = new ExcelSaxReader(localFile)) {
+                    checkEstimate(context, estimateRows(saxReader), start);
+                }
+            }
+
+            reader = localFile != null ? ExcelUtil.getReader(localFile) : ExcelUtil.getReader(inputStream);
+            Iterator<Map.Entry<String, String>> iter = headerAlias.entrySet().iterator();
+            while (iter.hasNext()) {
+                Map.Entry<String, String> entry = iter.next();
+                reader.addHeaderAlias(entry.getValue(), entry.getKey());
+            }
+
+            if (readAllSheets()) {
+                // 工作簿已整体加载，依次转换每个sheet
+                List<RowReader<T>> sheets = new ArrayList<>(reader.getSheetCount());
+                for (int i = 0; i < reader.getSheetCount(); i++) {
+                    reader.setSheet(i);
+                    sheets.add(new ListRowReader<>(this.readAll(reader, entityClass)));
+                }
+                return new MultiSheetRowReader<>(sheets);
+            }
+
+            // 转实体列表
+            return new ListRowReader<>(this.readAll(reader, entityClass));
+        } finally {
+            IoUtil.close(reader);
+            IoUtil.close(inputStream);
+        }
+    }
+
+    /**
+     * 解析前预检，预估行数为空或超过最大行数时关闭读取器并终止任务
+     * @param context
+     * @param reader
+     * @param start 任务开始时间
+     * @return
+     */
+    private RowReader<T> preflight(C context, RowReader<T> reader, long start) {
+        try {
+            checkEstimate(context, reader.estimate(getMaxSize()), start);
+            return reader;
+        } catch (RuntimeException e) {
+            IoUtil.close(reader);
+            throw e;
+        }
+    }
+
+    /**
+     * 预估落盘的xlsx的数据行数，读取全部sheet时累加每个sheet的行数
+     * @param saxReader
+     * @return
+     */
+    private int estimateRows(ExcelSaxReader saxReader) {
+        int sheetCount = readAllSheets() ? saxReader.getSheetCount() : 1;
+        int estimate = 0;
+        for (int i = 0; i < sheetCount && estimate <= getMaxSize(); i++) {
+            estimate += saxReader.estimateRows(i, getMaxSize() - estimate);
+        }
+        return Math.min(estimate, getMaxSize() + 1);
+    }
+
+    /**
+     * 根据预估行数进行非空校验、最大行数校验，无法预估时跳过
+     * @param context
+     * @param estimate 预估的数据行数
+     * @param start 任务开始时间
+     */
+    private void checkEstimate(C context, int estimate, long start) {
+        if (estimate < 0) {
+            return;
+        }
+        log.info("通用上传任务，taskId={}，excel预检完成，预估行数{}，总耗时{}毫秒", context.getTaskId(), estimate, System.currentTimeMillis() - start);
+        checkSize(context.getTaskId(), estimate, start);
+    }
+
+    /**
+     * 上传文件是否为csv
+     * @param context
+     * @return
+     */
+    private boolean isCsv(C context) {
+        String fileName = context.getFile() != null ? context.getFile().getOriginalFilename() : context.getLocalFile().getName();
+        return "csv".equalsIgnoreCase(FileUtil.extName(fileName));
+    }
+
+    /**
+     * 上传文件落盘到本地临时文件
+     *
+     * <p>
+     *     使用MultipartFile#transferTo，容器已将上传内容缓存在磁盘时直接移动文件，不经过堆内存.
+     *     记录检查点时落盘到{@link ExcelUploadService#checkpointDir()}，文件名为任务id，同时清理检查点已过期的落盘文件
+     * </p>
+     * @param context
+     * @return
+     * @throws IOException
+     */
+    private File spool(C context) throws IOException {
+        String extName = FileUtil.extName(context.getFile().getOriginalFilename());
+        String suffix = StringUtils.isEmpty(extName) ? null : "." + extName;
+        File localFile;
+        if (checkpointEnabled()) {
+            File dir = FileUtil.mkdir(checkpointDir());
+            Checkpointer.sweep(cacheService, dir);
+            localFile = new File(dir, context.getTaskId() + StringUtils.defaultString(suffix));
+        } else {
+            localFile = File.createTempFile("easy-excel-upload-", suffix);
+        }
+        context.setLocalFile(localFile);
+        context.getFile().transferTo(localFile);
+        log.info("通用上传任务，taskId={}，上传文件落盘完成，path={}，大小{}字节", context.getTaskId(), localFile.getAbsolutePath(), localFile.length());
+        return localFile;
+    }
+
+    /**
+     * 删除落盘的临时文件
+     * @param context
+     */
+    private void deleteLocalFile(C context) {
+        File localFile = context.getLocalFile();
+        if (localFile != null) {
+            FileUtil.del(localFile);
+            context.setLocalFile(null);
+        }
+    }
+
+    /**
+     * 统计行数，需要去重时收集重复的key
+     *
+     * <p>
+     *     多sheet时各sheet并发统计，sheet内重复的key和在多个sheet中出现的key均视为重复.
+     *     开启{@link ExcelUploadService#externalDeDuplication()}时key的指纹写入临时文件，统计完成后再分区检测重复
+     * </p>
+     * @param reader
+     * @param columns 去重字段
+     * @param duplicationKeys 用于接收重复key的指纹
+     * @param executor 多sheet并发统计使用的线程池
+     * @return
+     */
+    private int countRows(RowReader<T> reader, List<Function<T, Object>> columns, FingerprintSet duplicationKeys, ExecutorService executor) throws InterruptedException {
+        if (CollectionUtils.isEmpty(columns)) {
+            return forEachSheet(reader.sheets(), RowReader::count, executor).stream().mapToInt(Integer::intValue).sum();
+        }
+        if (externalDeDuplication()) {
+            try (ExternalDuplicateDetector detector = new ExternalDuplicateDetector()) {
+                int total = forEachSheet(reader.sheets(), sheet -> {
+                    int[] count = new int[1];
+                    KeyFingerprint<T> fingerprint = new KeyFingerprint<>(columns);
+                    sheet.read(item -> {
+                        count[0]++;
+                        if (fingerprint.compute(item)) {
+                            detector.add(fingerprint.high(), fingerprint.low(), -1);
+                        }
+                    });
+                    return count[0];
+                }, executor).stream().mapToInt(Integer::intValue).sum();
+                detector.resolve(duplicationKeys, null);
+                return total;
+            }
+        }
+        List<SheetKeys> sheetKeysList = forEachSheet(reader.sheets(), sheet -> {
+            SheetKeys sheetKeys = new SheetKeys();
+            KeyFingerprint<T> fingerprint = new KeyFingerprint<>(columns);
+            sheet.read(item -> {
+                sheetKeys.total++;
+                if (fingerprint.compute(item) && !sheetKeys.keys.add(fingerprint.high(), fingerprint.low())) {
+                    sheetKeys.duplicates.add(fingerprint.high(), fingerprint.low());
+                }
+            });
+            return sheetKeys;
+        }, executor);
+
+        int total = 0;
+        FingerprintSet keys = sheetKeysList.size() > 1 ? new FingerprintSet() : null;
+        for (SheetKeys sheetKeys : sheetKeysList) {
+            total += sheetKeys.total;
+            duplicationKeys.addAll(sheetKeys.duplicates);
+            if (keys != null) {
+                keys.merge(sheetKeys.keys, duplicationKeys);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 单个sheet的行数和去重key
+     */
+    private static class SheetKeys {
+
+        /**
+         * 行数
+         */
+        private int total;
+
+        /**
+         * 出现过的key的指纹
+         */
+        private final FingerprintSet keys = new FingerprintSet();
+
+        /**
+         * sheet内重复的key的指纹
+         */
+        private final FingerprintSet duplicates = new FingerprintSet();
+    }
+
+    /**
+     * 读取全部sheet的数据，多sheet时并发读取，按sheet顺序合并
+     * @param reader
+     * @param executor
+     * @return
+     */
+    private List<T> readSheets(RowReader<T> reader, ExecutorService executor) throws InterruptedException {
+        List<RowReader<T>> sheets = reader.sheets();
+        if (sheets.size() == 1) {
+            return reader.readAll();
+        }
+        List<T> list = new ArrayList<>();
+        forEachSheet(sheets, RowReader::readAll, executor).forEach(list::addAll);
+        return list;
+    }
+
+    /**
+     * 对每个sheet执行操作，多sheet时在线程池中并发执行
+     *
+     * <p>
+     *     等待结果时尚未开始的sheet在当前线程执行，线程池没有空闲线程或拒绝时不会一直等待.
+     *     任一sheet执行失败时取消其余sheet，并抛出该sheet的异常
+     * </p>
+     * @param sheets 每个sheet的读取器
+     * @param action 操作
+     * @param executor 线程池，为空时使用默认的批次线程池
+     * @param <R>
+     * @return 按sheet顺序排列的结果
+     */
+    private <R> List<R> forEachSheet(List<RowReader<T>> sheets, Function<RowReader<T>, R> action, ExecutorService executor) throws InterruptedException {
+        if (sheets.size() == 1) {
+            return Collections.singletonList(action.apply(sheets.get(0)));
+        }
+        ExecutorService pool = Optional.ofNullable(executor).orElse(batchExecutorService);
+        List<FutureTask<R>> futures = new ArrayList<>(sheets.size());
+        try {
+            for (RowReader<T> sheet : sheets) {
+                FutureTask<R> future = new FutureTask<>(() -> action.apply(sheet));
+                futures.add(future);
+                try {
+                    pool.execute(future);
+                } catch (RejectedExecutionException e) {
+                    // 等待结果时在当前线程执行
+                }
+            }
+            List<R> results = new ArrayList<>(sheets.size());
+            for (FutureTask<R> future : futures) {
+                // 尚未开始时在当前线程执行，已在其他线程开始时直接返回
+                future.run();
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof RuntimeException ? (RuntimeException) cause : new ServiceException(cause.getMessage(), cause);
+                }
+            }
+            return results;
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * excel非空校验、最大行数校验
+     * @param taskId
+     * @param size
+     * @param start
+     */
+    private void checkSize(String taskId, int size, long start) {
+        if (size == 0) {
+            log.info("通用上传任务，taskId={}，上传文件为空，任务结束，总耗时{}毫秒", taskId, System.currentTimeMillis() - start);
+            throw new ServiceException("上传文件不能为空");
+        }
+
+        if (size > getMaxSize()) {
+            log.info("通用上传任务，taskId={}，excel超过最大行数，任务结束，总耗时{}毫秒", taskId, System.currentTimeMillis() - start);
+            throw new ServiceException("上传文件最大行数不能超过" + getMaxSize() + "行");
+        }
+    }
+
+    /**
+     * 执行具体业务
+     *
+     * <p>
+     *     记录检查点时，任务异常结束后保留检查点和落盘文件，可以通过{@link ExcelUploadService#resume}续传；
+     *     任务完成或取消后删除. 续传已开始业务处理的任务时按照检查点还原业务处理的数据，不再执行去重、校验和过滤
+     * </p>
+     * @param context
+     * @param list
+     * @param checkpointer 任务检查点，未开启时为空
+     */
+    private void doProcess(C context, List<T> list, boolean isParallel, ExecutorService executor, Checkpointer<T> checkpointer) {
+        // 任务id
+        String taskId = context.getTaskId();
+
+        long start = System.currentTimeMillis();
+
+        RunningTask running = new RunningTask(context, checkpointer);
+        runningTasks.put(taskId, running);
+
+        // 异常结束时是否保留检查点
+        boolean keepCheckpoint = false;
+
+        try {
+            checkCancelled(context);
+
+            // 总行数
+            int totalSize = list.size();
+
+            // 初始化任务总行数
+            context.getTask().setTotal(totalSize);
+            // 更新任务进度
+            updateTask(context, 0, 0, null);
+
+            // 1-4. 去重、校验和过滤，续传时按照检查点还原剩余的数据
+            List<T> validList = checkpointer != null && checkpointer.isResumed()
+                    ? checkpointer.restoreRows(list)
+                    : this.filterStages(context, list, isParallel, executor, checkpointer, start);
+            if (validList == null) {
+                return;
+            }
+
+            // 5. 进行业务逻辑处理
+            long bizStart = System.currentTimeMillis();                              // 业务操作开始时间
+            AdaptiveBatchSizer sizer = checkpointer == null ? newBatchSizer() : null;
+
+            if (checkpointer != null) {
+                // 按照检查点分批，续传时跳过已完成的批次
+                List<List<T>> partList = checkpointer.begin(context, list, validList);
+                updateTask(context, 0, 0, null);
+                if (isParallel) {
+                    this.doParallelHandle(context, partList, start, executor);
+                } else {
+                    this.doHandle(context, partList, start);
+                }
+            } else if (sizer != null) {
+                // 自适应分片处理
+                this.doAdaptiveHandle(context, validList, sizer, isParallel, executor, start);
+            } else {
+                List<List<T>> partList = Lists.partition(validList, partSize());     // 按照partSize分片处理
+                if (isParallel) {
+                    this.doParallelHandle(context, partList, start, executor);
+                } else {
+                    this.doHandle(context, partList, start);
+                }
+            }
+
+            log.info("通用上传任务，taskId={}，完成业务数据处理，耗时{}毫秒，总耗时{}毫秒", taskId, System.currentTimeMillis() - bizStart, System.currentTimeMillis() - start);
+
+            if (context.getTask().getSuccess() == totalSize) {
+                updateTask(context, 0, "任务执行成功。");
+            } else {
+                updateTask(context, 0, "任务执行完成，共" + totalSize + "行数据，成功处理" + context.getTask().getSuccess() + "行。");
+            }
+        } catch (ValidateException ve) {
+            log.error(ve.getMessage());
+            interruptedTask(context, ve.getMessage());
+        } catch (Exception e) {
+            log.error("上传Excel失败，" + e.getMessage(), e);
+            interruptedTask(context, e.getMessage());
+            keepCheckpoint = checkpointer != null && checkpointer.isResumable() && !running.cancelled;
+        } finally {
+            runningTasks.remove(taskId);
+            // 释放锁
+            unLock(context);
+            if (keepCheckpoint) {
+                // 保留检查点和落盘文件，用于续传
+                checkpointer.release();
+                log.info("通用上传任务，taskId={}，任务异常结束，已保留检查点，可续传", taskId);
+            } else {
+                if (checkpointer != null) {
+                    checkpointer.clear();
+                }
+                // 删除落盘文件
+                deleteLocalFile(context);
+            }
+            // 记录失败列表，保留检查点时续传会删除并重新记录完整的失败列表
+            saveFailsList(context);
+        }
+    }
+    
+    /**
+     * 数据去重、非空和格式校验、过滤已导入的数据、字段业务校验
+     *
+     * <p>
+     *     开启流水线处理时去重之后的阶段和业务处理在流水线中完成
+     * </p>
+     * @param context
+     * @param list 读取的全部数据
+     * @param isParallel
+     * @param executor
+     * @param checkpointer 任务检查点，未开启时为空
+     * @param start 任务开始时间
+     * @return 需要业务处理的数据，没有有效数据或已在流水线中处理完成时返回null
+     */
+    private List<T> filterStages(C context, List<T> list, boolean isParallel, ExecutorService executor,
+                                 Checkpointer<T> checkpointer, long start) {
+        // 任务id
+        String taskId = context.getTaskId();
+
+        // 总行数
+        int totalSize = list.size();
+
+        // 1. 数据去重
+        long validStart = System.currentTimeMillis();
+        int validSize = totalSize;
+        List<T> validList = this.deDuplication(deDuplicationKeys(), list, context, duplicationErrorMessage());
+        // 更新任务进度
+        int failNums = validSize - (CollectionUtils.isEmpty(validList) ? 0 : validList.size());
+        updateTask(context, failNums, 0, null);
+        log.info("通用上传任务，taskId={}，完成数据去重校验，过滤出重复数据{}条，耗时{}毫秒，总耗时{}毫秒",
+                taskId,
+                failNums,
+                System.currentTimeMillis() - validStart,
+                System.currentTimeMillis() - start);
+
+
+        // 2-5. 流水线处理，各阶段按块并行
+        if (checkpointer == null && pipelined() && validList.size() > partSize()) {
+            this.doPipelineProcess(context, validList, totalSize, isParallel, executor, start);
+            return null;
+        }
+
+        checkCancelled(context);
+
+        // 2. 非空校验，格式校验等
+        validStart = System.currentTimeMillis();
+        validSize = validList.size();
+        validList = this.validateList(validList, context);
+        // 更新任务进度
+        failNums = validSize - (CollectionUtils.isEmpty(validList) ? 0 : validList.size());
+        updateTask(context, failNums, 0, null);
+        log.info("通用上传任务，taskId={}，完成数据非空、格式等基本校验，过滤出无效数据{}条，耗时{}毫秒，总耗时{}毫秒",
+                taskId,
+                failNums,
+                System.currentTimeMillis() - validStart,
+                System.currentTimeMillis() - start);
+
+        if (CollectionUtils.isEmpty(validList)) {
+            log.info("通用上传任务，taskId={}，excel中没有有效数据(非空、格式等基本校验)，总耗时{}毫秒", taskId, System.currentTimeMillis() - start);
+            updateTask(context, 0, "excel中没有有效数据。");
+            return null;
+        }
+
+        checkCancelled(context);
+
+        // 3. 过滤已导入的数据
+        if (StringUtils.isNotEmpty(importedFilterName())) {
+            validStart = System.currentTimeMillis();
+            validSize = validList.size();
+            validList = filterImported(validList, context);
+            // 更新任务进度
+            failNums = validSize - validList.size();
+            updateTask(context, failNums, 0, null);
+            log.info("通用上传任务，taskId={}，完成已导入数据过滤，过滤出已导入数据{}条，耗时{}毫秒，总耗时{}毫秒",
+                    taskId,
+                    failNums,
+                    System.currentTimeMillis() - validStart,
+                    System.currentTimeMillis() - start);
+
+            if (CollectionUtils.isEmpty(validList)) {
+                log.info("通用上传任务，taskId={}，excel中没有有效数据(已导入)，总耗时{}毫秒", taskId, System.currentTimeMillis() - start);
+                updateTask(context, 0, "excel中没有有效数据。");
+                return null;
+            }
+        }
+
+        checkCancelled(context);
+
+        // 4. 字段业务校验
+        validStart = System.currentTimeMillis();
+        validSize = validList.size();
+        validList = filterList(validList, context);
+        // 更新任务进度
+        failNums = validSize - (CollectionUtils.isEmpty(validList) ? 0 : validList.size());
+        updateTask(context, failNums, 0, null);
+
+        log.info("通用上传任务，taskId={}，完成业务数据校验，过滤出无效数据{}条，耗时{}毫秒，总耗时{}毫秒",
+                taskId,
+                failNums,
+                System.currentTimeMillis() - validStart,
+                System.currentTimeMillis() - start);
+
+        if (CollectionUtils.isEmpty(validList)) {
+            log.info("通用上传任务，taskId={}，excel中没有有效数据，总耗时{}毫秒", taskId, System.currentTimeMillis() - start);
+            updateTask(context, 0, "excel中没有有效数据。");
+            return null;
+        }
+
+        checkCancelled(context);
+
+        return validList;
+    }
+
+    /**
+     * 流水线执行去重之后的各阶段
+     *
+     * <p>
+     *     数据按照partSize分块，非空和格式校验、{@link ExcelUploadService#filterList}、{@link ExcelUploadService#handle}
+     *     各使用一个线程，通过有界队列传递数据块，第N块业务处理时第N+1块已在校验
+     * </p>
+     * @param context
+     * @param validList 去重后的数据
+     * @param totalSize 总行数
+     * @param isParallel
+     * @param executor
+     * @param start 任务开始时间
+     */
+    private void doPipelineProcess(C context, List<T> validList, int totalSize, boolean isParallel, ExecutorService executor, long start) {
+        long bizStart = System.currentTimeMillis();
+        StreamProcessor processor = new StreamProcessor(context, new FingerprintSet(), isParallel, executor, start,
+                newBatchSizer(), true);
+        try {
+            validList.forEach(processor);
+            processor.finish();
+        } finally {
+            processor.close();
+        }
+
+        log.info("通用上传任务，taskId={}，完成流水线处理，共{}块，业务处理{}批，耗时{}毫秒，总耗时{}毫秒",
+                context.getTaskId(),
+                processor.chunkNo,
+                processor.batchNo,
+                System.currentTimeMillis() - bizStart,
+                System.currentTimeMillis() - start);
+
+        if (processor.batchNo == 0) {
+            updateTask(context, 0, "excel中没有有效数据。");
+        } else if (context.getTask().getSuccess() == totalSize) {
+            updateTask(context, 0, "任务执行成功。");
+        } else {
+            updateTask(context, 0, "任务执行完成，共" + totalSize + "行数据，成功处理" + context.getTask().getSuccess() + "行。");
+        }
+    }
+
+    /**
+     * 流式执行具体业务
+     * @param context
+     * @param reader 预处理打开的读取器
+     * @param duplicationKeys 重复key的指纹
+     * @param isParallel
+     * @param executor
+     */
+    private void doStreamProcess(C context, RowReader<T> reader, FingerprintSet duplicationKeys, boolean isParallel, ExecutorService executor) {
+        // 任务id
+        String taskId = context.getTaskId();
+
+        long start = System.currentTimeMillis();
+
+        runningTasks.put(taskId, new RunningTask(context, null));
+
+        try {
+            checkCancelled(context);
+
+            // 总行数，预处理时已统计
+            int totalSize = context.getTask().getTotal();
+
+            // 更新任务进度
+            updateTask(context, 0, 0, null);
+
+            // 逐块处理：去重 -> 非空、格式校验 -> 业务校验 -> 业务处理
+            AdaptiveBatchSizer sizer = newBatchSizer();
+            List<StreamProcessor> processors;
+            if (isParallel && reader.sheets().size() > 1) {
+                // 多sheet并发处理，sheet内的批次依次处理
+                processors = forEachSheet(reader.sheets(), sheet -> {
+                    StreamProcessor processor = new StreamProcessor(context, duplicationKeys, false, executor, start, sizer, pipelined());
+                    try {
+                        sheet.read(processor);
+                        processor.finish();
+                    } finally {
+                        processor.close();
+                    }
+                    return processor;
+                }, executor);
+            } else {
+                StreamProcessor processor = new StreamProcessor(context, duplicationKeys, isParallel, executor, start, sizer, pipelined());
+                try {
+                    reader.read(processor);
+                    processor.finish();
+                } finally {
+                    processor.close();
+                }
+                processors = Collections.singletonList(processor);
+            }
+            int chunkNo = processors.stream().mapToInt(processor -> processor.chunkNo).sum();
+            int batchNo = processors.stream().mapToInt(processor -> processor.batchNo).sum();
+
+            log.info("通用上传任务，taskId={}，完成流式处理，共{}块，业务处理{}批，总耗时{}毫秒",
+                    taskId, chunkNo, batchNo, System.currentTimeMillis() - start);
+
+            if (batchNo == 0) {
+                log.info("通用上传任务，taskId={}，excel中没有有效数据，总耗时{}毫秒", taskId, System.currentTimeMillis() - start);
+                updateTask(context, 0, "excel中没有有效数据。");
+            } else if (context.getTask().getSuccess() == totalSize) {
+                updateTask(context, 0, "任务执行成功。");
+            } else {
+                updateTask(context, 0, "任务执行完成，共" + totalSize + "行数据，成功处理" + context.getTask().getSuccess() + "行。");
+            }
+        } catch (ValidateException ve) {
+            log.error(ve.getMessage());
+            interruptedTask(context, ve.getMessage());
+        } catch (Exception e) {
+            log.error("上传Excel失败，" + e.getMessage(), e);
+            interruptedTask(context, e.getMessage());
+        } finally {
+            runningTasks.remove(taskId);
+            // 关闭读取器
+            IoUtil.close(reader);
+            // 释放锁
+            unLock(context);
+            // 删除落盘文件
+            deleteLocalFile(context);
+            // 记录失败列表
+            saveFailsList(context);
+        }
+    }
+
+    /**
+     * 流式处理器，按照partSize分块处理读取到的数据行
+     */
+    private class StreamProcessor implements Consumer<T> {
+
+        /**
+         * 上传上下文
+         */
+        private final C context;
+
+        /**
+         * 重复的key
+         */
+        private final FingerprintSet duplicationKeys;
+
+        /**
+         * 去重key的指纹计算，每个处理器单独使用
+         */
+        private final KeyFingerprint<T> fingerprint;
+
+        /**
+         * 是否并发执行
+         */
+        private final boolean isParallel;
+
+        /**
+         * 业务处理批次的执行器
+         */
+        private final BatchExecutor batches;
+
+        /**
+         * 任务开始时间
+         */
+        private final long start;
+
+        /**
+         * 批次完成队列，按完成顺序获取处理结果
+         */
+        private final CompletionService<Integer> completion;
+
+        /**
+         * 处理中的批次及其数据
+         */
+        private final Map<Future<Integer>, List<T>> parts = new IdentityHashMap<>();
+
+        /**
+         * 自适应批次大小，未开启时为空
+         */
+        private final AdaptiveBatchSizer sizer;
+
+        /**
+         * 流水线，未开启流水线处理时为空
+         */
+        private final StagePipeline<List<T>> pipeline;
+
+        /**
+         * 当前块
+         */
+        private List<T> chunk = new ArrayList<>(partSize());
+
+        /**
+         * 已读取的块数
+         */
+        private int chunkNo;
+
+        /**
+         * 已提交业务处理的批次数
+         */
+        private int batchNo;
+
+        StreamProcessor(C context, FingerprintSet duplicationKeys, boolean isParallel, ExecutorService executor, long start,
+                        AdaptiveBatchSizer sizer, boolean pipelined) {
+            this.context = context;
+            this.duplicationKeys = duplicationKeys;
+            this.fingerprint = duplicationKeys.isEmpty() ? null : new KeyFingerprint<>(deDuplicationKeys());
+            this.isParallel = isParallel;
+            this.batches = batchExecutor(Optional.ofNullable(executor).orElse(batchExecutorService), context);
+            this.completion = new ExecutorCompletionService<>(batches);
+            this.start = start;
+            this.sizer = sizer;
+            this.pipeline = pipelined
+                    ? new StagePipeline<>("excel-upload-" + context.getTaskId(),
+                            Arrays.asList(this::check, this::filter), this::dispatch, PIPELINE_QUEUE_SIZE)
+                    : null;
+        }
+
+        @Override
+        public void accept(T item) {
+            chunk.add(item);
+            if (chunk.size() >= (sizer == null ? partSize() : sizer.next())) {
+                process(chunk);
+                chunk = new ArrayList<>(partSize());
+            }
+        }
+
+        /**
+         * 处理最后一块，等待处理中的批次完成
+         */
+        void finish() {
+            if (!chunk.isEmpty()) {
+                process(chunk);
+                chunk = new ArrayList<>(0);
+            }
+            if (pipeline != null) {
+                try {
+                    pipeline.finish();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ServiceException("任务执行被中断");
+                }
+            }
+            while (!parts.isEmpty()) {
+                await();
+            }
+        }
+
+        /**
+         * 停止流水线线程，取消未开始执行的批次，任务异常结束时调用
+         */
+        void close() {
+            if (pipeline != null) {
+                pipeline.close();
+            }
+            parts.keySet().forEach(future -> future.cancel(false));
+        }
+
+        /**
+         * 处理一块数据，开启流水线处理时交给流水线
+         * @param rows
+         */
+        private void process(List<T> rows) {
+            checkCancelled(context);
+            if (pipeline == null) {
+                List<T> validList = filter(check(rows));
+                if (validList != null) {
+                    dispatch(validList);
+                }
+                return;
+            }
+            try {
+                pipeline.put(rows);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServiceException("任务执行被中断");
+            }
+        }
+
+        /**
+         * 去重、非空和格式校验、过滤已导入的数据
+         * @param rows
+         * @return 有效数据，没有有效数据时返回null
+         */
+        private List<T> check(List<T> rows) {
+            chunkNo++;
+            int size = rows.size();
+
+            // 1. 数据去重
+            List<T> validList = rows;
+            if (fingerprint != null) {
+                String message = duplicationErrorMessage();
+                validList = validList.stream().filter(item -> {
+                    if (fingerprint.compute(item) && duplicationKeys.contains(fingerprint.high(), fingerprint.low())) {
+                        context.addFail(item, message);
+                        return false;
+                    }
+                    return true;
+                }).collect(toList());
+            }
+
+            // 2. 非空校验，格式校验等
+            validList = validateList(validList, context);
+
+            // 3. 过滤已导入的数据
+            validList = filterImported(validList, context);
+
+            // 更新任务进度
+            int failNums = size - validList.size();
+            if (failNums > 0) {
+                updateTask(context, failNums, 0, null);
+            }
+            return validList.isEmpty() ? null : validList;
+        }
+
+        /**
+         * 字段业务校验
+         * @param rows
+         * @return 有效数据，没有有效数据时返回null
+         */
+        private List<T> filter(List<T> rows) {
+            if (rows == null) {
+                return null;
+            }
+            int size = rows.size();
+
+            // 4. 字段业务校验
+            List<T> validList = filterList(rows, context);
+
+            // 更新任务进度
+            int failNums = size - (CollectionUtils.isEmpty(validList) ? 0 : validList.size());
+            if (failNums > 0) {
+                updateTask(context, failNums, 0, null);
+            }
+            return CollectionUtils.isEmpty(validList) ? null : validList;
+        }
+
+        /**
+         * 业务逻辑处理
+         * @param part
+         */
+        private void dispatch(List<T> part) {
+            checkCancelled(context);
+            // 5. 进行业务逻辑处理
+            batchNo++;
+            if (isParallel) {
+                // 控制同时处理中的批次数，避免数据在内存中堆积
+                if (parts.size() >= Math.max(1, maxParallelBatches())) {
+                    await();
+                }
+                parts.put(trackBatch(context, completion.submit(() -> handleBatch(part, context, sizer))), part);
+                return;
+            }
+            long batchStart = System.currentTimeMillis();
+            int success = 0;
+            try {
+                success = handleBatch(part, context, sizer);
+            } catch (Exception e) {
+                log.error(String.format("通用上传任务，taskId=%s，单批次处理excel数据异常，%s", context.getTaskId(), e.getMessage()), e);
+            } finally {
+                log.info("通用上传任务，taskId={}，进行业务数据处理，正在处理第{}批，耗时{}毫秒，总耗时{}毫秒",
+                        context.getTaskId(),
+                        batchNo,
+                        System.currentTimeMillis() - batchStart,
+                        System.currentTimeMillis() - start
+                );
+                // 更新任务进度
+                updateTask(context, part.size(), success, null);
+                // 记录已导入的数据
+                recordImported(context, part, success);
+            }
+        }
+
+        /**
+         * 等待任一处理中的批次完成，按完成顺序更新任务进度
+         */
+        private void await() {
+            Future<Integer> future = takeBatch(completion, batches);
+            List<T> part = parts.remove(future);
+            untrackBatch(context, future);
+            int success = 0;
+            try {
+                success = future.get();
+            } catch (CancellationException e) {
+                log.info("通用上传任务，taskId={}，任务已取消，跳过未执行的批次", context.getTaskId());
+            } catch (Exception e) {
+                log.error(String.format("通用上传任务，taskId=%s，单批次处理excel数据异常，%s", context.getTaskId(), e.getMessage()), e);
+            } finally {
+                log.info("通用上传任务，taskId={}，进行业务数据处理，已提交{}批，处理中{}批，总耗时{}毫秒",
+                        context.getTaskId(),
+                        batchNo,
+                        parts.size(),
+                        System.currentTimeMillis() - start
+                );
+                // 更新任务进度
+                updateTask(context, part.size(), success, null);
+                // 记录已导入的数据
+                recordImported(context, part, success);
+            }
+        }
+    }
+
+    /**
+     * 并发处理业务
+     *
+     * <p>
+     *     按顺序提交批次，同时处理中的批次数不超过{@link ExcelUploadService#maxParallelBatches()}，
+     *     达到上限时等待任一批次完成后再提交下一批，不会一次向线程池提交全部批次.
+     *     任务进度、成功数和已导入数据按批次完成的顺序记录，慢批次不会阻塞其他批次的进度
+     * </p>
+     * @param context
+     * @param partList
+     * @param start
+     */
+    private void doParallelHandle(C context, List<List<T>> partList, long start, ExecutorService executor) {
+        long bizStart = System.currentTimeMillis();                              // 业务操作开始时间
+        BatchExecutor batches = batchExecutor(Optional.ofNullable(executor).orElse(batchExecutorService), context);
+        CompletionService<Integer> completion = new ExecutorCompletionService<>(batches);
+        int window = Math.max(1, maxParallelBatches());                          // 同时处理中的最大批次数
+        Map<Future<Integer>, List<T>> parts = new IdentityHashMap<>(window * 2); // 处理中的批次
+        int done = 0;                                                            // 已完成的批次数
+
+        try {
+            for (List<T> part : partList) {
+                if (parts.size() >= window) {
+                    awaitBatch(context, completion, batches, parts, ++done, partList.size(), bizStart, start);
+                }
+                checkCancelled(context);
+                parts.put(trackBatch(context, completion.submit(() -> handleBatch(part, context, null))), part);
+            }
+            while (!parts.isEmpty()) {
+                awaitBatch(context, completion, batches, parts, ++done, partList.size(), bizStart, start);
+            }
+        } finally {
+            // 异常结束时取消未开始执行的批次
+            parts.keySet().forEach(future -> future.cancel(false));
+        }
+    }
+
+    /**
+     * 等待任一处理中的批次完成并更新任务进度
+     * @param context
+     * @param completion
+     * @param batches 批次的执行器
+     * @param parts 处理中的批次
+     * @param batchNo 已完成的批次数
+     * @param total 总批次数
+     * @param bizStart
+     * @param start
+     */
+    private void awaitBatch(C context, CompletionService<Integer> completion, BatchExecutor batches, Map<Future<Integer>, List<T>> parts,
+                            int batchNo, int total, long bizStart, long start) {
+        Future<Integer> future = takeBatch(completion, batches);
+        List<T> part = parts.remove(future);
+        untrackBatch(context, future);
+        int success = 0;
+        boolean completed = false;
+        try {
+            success = future.get();
+            completed = true;
+        } catch (CancellationException e) {
+            log.info("通用上传任务，taskId={}，任务已取消，跳过未执行的批次", context.getTaskId());
+        } catch (Exception e) {
+            log.error(String.format("通用上传任务，taskId=%s，单批次处理excel数据异常，%s", context.getTaskId(), e.getMessage()), e);
+        } finally {
+            log.info("通用上传任务，taskId={}，进行业务数据处理，已完成{}批，共{}批，耗时{}毫秒，总耗时{}毫秒",
+                    context.getTaskId(),
+                    batchNo,
+                    total,
+                    System.currentTimeMillis() - bizStart,
+                    System.currentTimeMillis() - start
+            );
+            // 更新任务进度
+            updateTask(context, part.size(), success, null);
+            // 记录已导入的数据
+            recordImported(context, part, success);
+            // 记录检查点
+            checkpoint(context, part, completed);
+        }
+    }
+
+    /**
+     * 等待任一批次完成，没有完成的批次时在当前线程执行尚未开始的批次
+     * @param completion
+     * @param batches
+     * @return 已完成的批次
+     */
+    private Future<Integer> takeBatch(CompletionService<Integer> completion, BatchExecutor batches) {
+        try {
+            Future<Integer> future;
+            while ((future = completion.poll()) == null) {
+                if (!batches.help()) {
+                    future = completion.poll(HELP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (future != null) {
+                        break;
+                    }
+                }
+            }
+            return future;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("任务执行被中断");
+        }
+    }
+
+    /**
+     * 执行业务处理批次的执行器，不丢弃批次
+     *
+     * <p>
+     *     开启{@link ExcelUploadService#virtualThreads()}且JDK支持时，批次在虚拟线程中执行，
+     *     同一服务所有任务同时执行的批次数不超过{@link ExcelUploadService#maxConcurrentHandles()}.
+     *     使用线程池时等待结果的上传任务会执行自己尚未开始的批次，上传任务和批次共用线程池时也不会死锁.
+     *     使用默认的批次线程池时通过{@link FairScheduler}按任务轮询分配线程，避免大任务长时间占满线程池
+     * </p>
+     * @param executor
+     * @param context
+     * @return
+     */
+    private BatchExecutor batchExecutor(ExecutorService executor, C context) {
+        ExecutorService virtualExecutor = virtualThreads() ? VirtualThreads.executor() : null;
+        if (virtualExecutor != null) {
+            Semaphore permits = handlePermits();
+            return new BatchExecutor(command -> virtualExecutor.execute(() -> {
+                permits.acquireUninterruptibly();
+                try {
+                    command.run();
+                } finally {
+                    permits.release();
+                }
+            }), false);
+        }
+        if (executor == batchExecutorService) {
+            return new BatchExecutor(FAIR_SCHEDULER.executor(executor, context.getTaskId()), true);
+        }
+        return new BatchExecutor(executor, true);
+    }
+
+    /**
+     * 虚拟线程业务处理的并发许可
+     * @return
+     */
+    private Semaphore handlePermits() {
+        Semaphore permits = handlePermits;
+        if (permits == null) {
+            synchronized (this) {
+                permits = handlePermits;
+                if (permits == null) {
+                    permits = new Semaphore(Math.max(1, maxConcurrentHandles()), true);
+                    handlePermits = permits;
+                }
+            }
+        }
+        return permits;
+    }
+
+    /**
+     * 非并发处理业务
+     * @param context
+     * @param partList
+     * @param start
+     */
+    private void doHandle(C context, List<List<T>> partList, long start) {
+        for (int i = 0; i < partList.size(); i++) {
+            checkCancelled(context);
+            long batchStart = System.currentTimeMillis();
+            List<T> part = partList.get(i);
+            int success = 0;
+            boolean completed = false;
+            try {
+                success = handleBatch(part, context, null);
+                completed = true;
+            } catch (Exception e) {
+                log.error(String.format("通用上传任务，taskId=%s，单批次处理excel数据异常，%s", context.getTaskId(), e.getMessage()), e);
+            } finally {
+                log.info("通用上传任务，taskId={}，进行业务数据处理，正在处理第{}批，共{}批，耗时{}毫秒，总耗时{}毫秒",
+                        context.getTaskId(),
+                        i + 1,
+                        partList.size(),
+                        System.currentTimeMillis() - batchStart,
+                        System.currentTimeMillis() - start
+                );
+                // 更新任务进度
+                updateTask(context, part.size(), success, null);
+                // 记录已导入的数据
+                recordImported(context, part, success);
+                // 记录检查点
+                checkpoint(context, part, completed);
+            }
+        }
+    }
+
+    /**
+     * 自适应分片处理业务，每批处理完成后按照耗时调整下一批的大小
+     * @param context
+     * @param validList
+     * @param sizer
+     * @param isParallel
+     * @param executor
+     * @param start
+     */
+    private void doAdaptiveHandle(C context, List<T> validList, AdaptiveBatchSizer sizer, boolean isParallel,
+                                  ExecutorService executor, long start) {
+        StreamProcessor processor = new StreamProcessor(context, new FingerprintSet(), isParallel, executor, start, sizer, false);
+        try {
+            int offset = 0;
+            while (offset < validList.size()) {
+                int size = Math.min(sizer.next(), validList.size() - offset);
+                processor.dispatch(validList.subList(offset, offset + size));
+                offset += size;
+            }
+            processor.finish();
+        } finally {
+            processor.close();
+        }
+    }
+
+    /**
+     * 处理一个批次，记录批次大小和耗时
+     * @param part
+     * @param context
+     * @param sizer 自适应批次大小，未开启时为空
+     * @return 成功处理的数量
+     */
+    private int handleBatch(List<T> part, C context, AdaptiveBatchSizer sizer) {
+        long batchStart = System.currentTimeMillis();
+        boolean[] error = {true};
+        try {
+            return handleWithRetry(part, context, error);
+        } finally {
+            long millis = System.currentTimeMillis() - batchStart;
+            int next = sizer == null ? partSize() : sizer.record(part.size(), millis, error[0]);
+            Task progress = context.getTask();
+            synchronized (progress) {
+                if (progress.getStatistics() != null) {
+                    progress.getStatistics().recordBatch(part.size(), millis, error[0]).setNextBatchSize(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * 按照重试策略处理一个批次
+     *
+     * <p>
+     *     handle抛出{@link ExcelUploadService#isTransientError 临时异常}时按指数退避重试{@link ExcelUploadService#handleRetries()}次；
+     *     仍然失败且开启{@link ExcelUploadService#splitFailedBatch()}时将批次二分后分别处理，
+     *     直到定位出单行，失败的行添加到失败列表，原因为异常信息，其余行仍然批量处理
+     * </p>
+     * @param part
+     * @param context
+     * @param error 用于返回首次处理是否异常
+     * @return 成功处理的数量
+     */
+    private int handleWithRetry(List<T> part, C context, boolean[] error) {
+        long backoff = Math.max(0L, handleRetryBackoffMillis());
+        for (int attempt = 0; ; attempt++) {
+            try {
+                int success = handle(part, context);
+                if (attempt == 0) {
+                    error[0] = false;
+                }
+                return success;
+            } catch (Exception e) {
+                if (attempt < handleRetries() && isTransientError(e)) {
+                    log.warn("通用上传任务，taskId={}，单批次处理excel数据异常，{}毫秒后第{}次重试，{}",
+                            context.getTaskId(), backoff, attempt + 1, e.getMessage());
+                    sleep(backoff);
+                    backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF_MILLIS);
+                    continue;
+                }
+                if (!splitFailedBatch()) {
+                    throw e;
+                }
+                log.warn("通用上传任务，taskId={}，单批次处理excel数据异常，拆分{}行的批次定位失败数据，{}",
+                        context.getTaskId(), part.size(), e.getMessage());
+                return handleSplit(part, context, e);
+            }
+        }
+    }
+
+    /**
+     * 二分处理失败的批次，单行失败时添加到失败列表
+     * @param part
+     * @param context
+     * @param cause 该批次的异常
+     * @return 成功处理的数量
+     */
+    private int handleSplit(List<T> part, C context, Exception cause) {
+        if (part.size() == 1) {
+            context.addFail(part.get(0), StringUtils.defaultIfEmpty(cause.getMessage(), cause.getClass().getSimpleName()));
+            return 0;
+        }
+        int success = 0;
+        int middle = part.size() / 2;
+        for (List<T> half : Arrays.asList(part.subList(0, middle), part.subList(middle, part.size()))) {
+            try {
+                success += handle(half, context);
+            } catch (Exception e) {
+                success += handleSplit(half, context, e);
+            }
+        }
+        return success;
+    }
+
+    /**
+     * 重试前等待
+     * @param millis
+     */
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("任务执行被中断");
+        }
+    }
+
+    /**
+     * 自适应批次大小，未开启时返回null
+     * @return
+     */
+    private AdaptiveBatchSizer newBatchSizer() {
+        return adaptivePartSize() ? new AdaptiveBatchSizer(partSize(), minPartSize(), maxPartSize()) : null;
+    }
+
+    /**
+     * 批量执行数据非空、格式等校验
+     *
+     * <p>
+     *     开启{@link ExcelUploadService#parallelValidate()}且数据足够多时，按分片在ForkJoin公共线程池中并发校验，
+     *     分片内的失败数据先记录在分片结果中，全部完成后按分片顺序一次添加到失败列表，与单线程校验的顺序一致
+     * </p>
+     * @param list
+     * @param context
+     * @return 校验通过的数据
+     */
+    private List<T> validateList(List<T> list, C context) {
+        if (!parallelValidate() || list.size() < VALIDATE_SPLIT_SIZE * 2) {
+            ValidationResult result = new ValidationResult();
+            return list.stream().filter(item -> validate(item, result, context)).collect(toList());
+        }
+        int splitSize = Math.max(VALIDATE_SPLIT_SIZE, list.size() / (ForkJoinPool.getCommonPoolParallelism() * 4) + 1);
+        List<ValidateSplit> splits = Lists.partition(list, splitSize).parallelStream()
+                .map(this::validateSplit)
+                .collect(toList());
+
+        List<T> validList = new ArrayList<>(list.size());
+        List<T> fails = new ArrayList<>();
+        for (ValidateSplit split : splits) {
+            validList.addAll(split.valid);
+            fails.addAll(split.fails);
+        }
+        if (!fails.isEmpty()) {
+            context.addFails(fails);
+        }
+        return validList;
+    }
+
+    /**
+     * 校验一个分片，失败原因记录在数据的errorMessage中
+     * @param part
+     * @return
+     */
+    private ValidateSplit validateSplit(List<T> part) {
+        ValidateSplit split = new ValidateSplit(part.size());
+        ValidationResult result = new ValidationResult();
+        for (T t : part) {
+            String message = validate(t, result);
+            if (message == null) {
+                split.valid.add(t);
             } else {
-                this.doHandle(context, partList, start);
+                t.setErrorMessage(message);
+                split.fails.add(t);
             }
+        }
+        return split;
+    }
 
-            log.info("通用上传任务，taskId={}，完成业务数据处理，耗时{}毫秒，总耗时{}毫秒", taskId, System.currentTimeMillis() - bizStart, System.currentTimeMillis() - start);
+    /**
+     * 单个分片的校验结果
+     */
+    private class ValidateSplit {
 
-            if (context.getTask().getSuccess() == totalSize) {
-                updateTask(context, 0, "任务执行成功。");
-            } else {
-                updateTask(context, 0, "任务执行完成，共" + totalSize + "行数据，成功处理" + context.getTask().getSuccess() + "行。");
-            }
-        } catch (ValidateException ve) {
-            log.error(ve.getMessage());
-            interruptedTask(context, ve.getMessage());
-        } catch (Exception e) {
-            log.error("上传Excel失败，" + e.getMessage(), e);
-            interruptedTask(context, e.getMessage());
-        } finally {
-            // 释放锁
-            unLock(context);
-            // 记录失败列表
-            saveFailsList(context);
+        /**
+         * 校验通过的数据
+         */
+        private final List<T> valid;
+
+        /**
+         * 校验失败的数据
+         */
+        private final List<T> fails = new ArrayList<>();
+
+        ValidateSplit(int size) {
+            this.valid = new ArrayList<>(size);
         }
     }
-    
+
     /**
-     * 并发处理业务
+     * 数据非空、格式等校验
+     * @param t
+     * @param result 复用的校验结果
      * @param context
-     * @param partList
-     * @param start
-     * @throws InterruptedException
      */
-    private void doParallelHandle(C context, List<List<T>> partList, long start, ExecutorService executor) throws InterruptedException {
-        long bizStart = System.currentTimeMillis();                              // 业务操作开始时间
-        AtomicInteger batchNo = new AtomicInteger();                             // 自增原子类
-        List<Callable<Integer>> callableList = partList.stream()                 // 多线程并发处理
-                .map(part -> (Callable<Integer>)() -> handle(part, context))
-                .collect(toList());
-        List<Future<Integer>> futures = Optional.ofNullable(executor).orElse(executorService).invokeAll(callableList); // 交给线程池处理
+    private boolean validate (T t, ValidationResult result, C context) {
+        String message = validate(t, result);
+        if (message == null) {
+            return true;
+        }
+        context.addFail(t, message);
+        return false;
+    }
 
-        for (int i = 0; i < futures.size(); i++) {
-            int success = 0;
-            try {
-                success = futures.get(i).get();
-            } catch (Exception e) {
-                log.error(String.format("通用上传任务，taskId=%s，单批次处理excel数据异常，%s", context.getTaskId(), e.getMessage()), e);
-            } finally {
-                log.info("通用上传任务，taskId={}，进行业务数据处理，正在处理第{}批，共{}批，耗时{}毫秒，总耗时{}毫秒",
-                        context.getTaskId(),
-                        batchNo.incrementAndGet(),
-                        partList.size(),
-                        System.currentTimeMillis() - bizStart,
-                        System.currentTimeMillis() - start
-                );
-                // 更新任务进度
-                updateTask(context, partList.get(i).size(), success, null);
-            }
+    /**
+     * 通过{@link BaseRow#validate(ValidationResult)}校验一行数据，校验前清空result
+     * @param t
+     * @param result 复用的校验结果
+     * @return 失败原因，校验通过时返回null
+     */
+    private String validate(T t, ValidationResult result) {
+        result.reset();
+        try {
+            t.validate(result);
+        } catch (Exception e) {
+            result.reject(e.getMessage());
         }
+        return result.isValid() ? null : StringUtils.defaultString(result.getMessage());
     }
 
     /**
-     * 非并发处理业务
+     * 通过布隆过滤器过滤以前的任务已导入的数据，未启用时直接返回
+     *
+     * <p>
+     *     按照去重key判断，过滤器判定为已导入的数据经过{@link ExcelUploadService#confirmImported}确认后添加到失败列表，
+     *     访问缓存失败时不过滤
+     * </p>
+     * @param list
      * @param context
-     * @param partList
-     * @param start
+     * @return 未导入的数据
      */
-    private void doHandle(C context, List<List<T>> partList, long start) {
-        for (int i = 0; i < partList.size(); i++) {
-            long batchStart = System.currentTimeMillis();
-            List<T> part = partList.get(i);
-            int success = 0;
-            try {
-                success = handle(part, context);
-            } catch (Exception e) {
-                log.error(String.format("通用上传任务，taskId=%s，单批次处理excel数据异常，%s", context.getTaskId(), e.getMessage()), e);
-            } finally {
-                log.info("通用上传任务，taskId={}，进行业务数据处理，正在处理第{}批，共{}批，耗时{}毫秒，总耗时{}毫秒",
-                        context.getTaskId(),
-                        i + 1,
-                        partList.size(),
-                        System.currentTimeMillis() - batchStart,
-                        System.currentTimeMillis() - start
-                );
-                // 更新任务进度
-                updateTask(context, part.size(), success, null);
+    private List<T> filterImported(List<T> list, C context) {
+        String filterName = importedFilterName();
+        List<Function<T, Object>> columns = deDuplicationKeys();
+        if (StringUtils.isEmpty(filterName) || CollectionUtils.isEmpty(columns) || CollectionUtils.isEmpty(list)) {
+            return list;
+        }
+
+        // 有去重key的数据
+        List<T> keyed = new ArrayList<>(list.size());
+        List<String> keys = new ArrayList<>(list.size());
+        for (T item : list) {
+            String key = importedKey(columns, item);
+            if (key != null) {
+                keyed.add(item);
+                keys.add(key);
+            }
+        }
+        if (keys.isEmpty()) {
+            return list;
+        }
+
+        List<Boolean> contains;
+        try {
+            contains = cacheService.bfContains(CacheConstant.UPLOAD_EXCEL_IMPORTED + filterName, keys);
+        } catch (Exception e) {
+            log.error(String.format("通用上传任务，taskId=%s，查询已导入数据过滤器异常，%s", context.getTaskId(), e.getMessage()), e);
+            return list;
+        }
+        List<T> suspects = new ArrayList<>();
+        for (int i = 0; i < keyed.size(); i++) {
+            if (contains.get(i)) {
+                suspects.add(keyed.get(i));
+            }
+        }
+        if (suspects.isEmpty()) {
+            return list;
+        }
+
+        // 确认已导入的数据，按原顺序拆分
+        List<T> imported = confirmImported(suspects, context);
+        if (CollectionUtils.isEmpty(imported)) {
+            return list;
+        }
+        Set<T> importedSet = Collections.newSetFromMap(new IdentityHashMap<>(imported.size()));
+        importedSet.addAll(imported);
+        List<T> validList = new ArrayList<>(list.size() - importedSet.size());
+        List<T> fails = new ArrayList<>(importedSet.size());
+        for (T item : list) {
+            if (importedSet.contains(item)) {
+                fails.add(item);
+            } else {
+                validList.add(item);
             }
         }
+        context.addFails(fails, importedErrorMessage());
+        return validList;
     }
 
     /**
-     * 数据非空、格式等校验
-     * @param t
+     * 将处理成功的数据写入已导入数据过滤器，未启用时直接返回
+     *
+     * <p>
+     *     只有整批处理成功时才写入，handle返回的成功数小于批次行数时无法确定哪些行成功，不写入，避免失败的行以后被误判为已导入.
+     *     写入失败时只记录日志
+     * </p>
      * @param context
+     * @param part 一批数据
+     * @param success 处理成功的数量
      */
-    private boolean validate (T t, C context) {
+    private void recordImported(C context, List<T> part, int success) {
+        String filterName = importedFilterName();
+        List<Function<T, Object>> columns = deDuplicationKeys();
+        if (StringUtils.isEmpty(filterName) || CollectionUtils.isEmpty(columns) || success < part.size()) {
+            return;
+        }
+        List<String> keys = part.stream()
+                .map(item -> importedKey(columns, item))
+                .filter(Objects::nonNull)
+                .collect(toList());
+        if (keys.isEmpty()) {
+            return;
+        }
         try {
-            t.validate();
-            return true;
+            cacheService.bfAdd(CacheConstant.UPLOAD_EXCEL_IMPORTED + filterName, keys,
+                    CacheConstant.IMPORTED_FILTER_CAPACITY, CacheConstant.IMPORTED_FILTER_FPP,
+                    CacheConstant.IMPORTED_FILTER_EXPIRE, TimeUnit.SECONDS);
         } catch (Exception e) {
-            context.addFail(t, e.getMessage());
-            return false;
+            log.error(String.format("通用上传任务，taskId=%s，写入已导入数据过滤器异常，%s", context.getTaskId(), e.getMessage()), e);
+        }
+    }
+
+    /**
+     * 已导入数据过滤器中的key，各去重字段的值以\u001F拼接，任一字段为空时返回null
+     * @param columns
+     * @param item
+     * @return
+     */
+    private String importedKey(List<Function<T, Object>> columns, T item) {
+        StringBuilder key = new StringBuilder();
+        for (Function<T, Object> column : columns) {
+            Object v = column.apply(item);
+            if (v == null || (v instanceof String && StringUtils.isBlank((String) v))) {
+                return null;
+            }
+            if (key.length() > 0) {
+                key.append('\u001F');
+            }
+            key.append(v.toString().trim());
         }
+        return key.toString();
     }
 
     /**
@@ -392,49 +1924,50 @@ abstract public class AbstractExcelUploadService<T extends BaseRow, C extends Up
      * @return
      */
     public List<T> deDuplication(Function<T, Object> column, List<T> list, C context, String message) {
+        return deDuplication(column == null ? null : Collections.singletonList(column), list, context, message);
+    }
+
+    /**
+     * 根据对象的多个字段组合进行去重，并添加错误信息到context中
+     *
+     * <p>
+     *     只遍历一次列表，每行计算一次组合key的128位指纹，不拼接字符串，指纹相同时再比较实际值.
+     *     首次出现的行和之后重复出现的行都添加到失败列表，按原顺序拆分出有效列表和重复列表，没有重复数据时直接返回原列表
+     * </p>
+     * @param columns 去重字段，任一字段为空的行不参与去重
+     * @param list
+     * @param context
+     * @param message
+     * @return
+     */
+    public List<T> deDuplication(List<Function<T, Object>> columns, List<T> list, C context, String message) {
 
-        if (column == null) {
+        if (CollectionUtils.isEmpty(columns) || CollectionUtils.isEmpty(list)) {
             // 不需要去重
             return list;
         }
 
-        // 去重
-        Set<String> keys = Sets.newHashSetWithExpectedSize(list.size());
+        // 重复的行
+        BitSet duplicated = externalDeDuplication()
+                ? ExternalDuplicateDetector.detect(list, new KeyFingerprint<>(columns))
+                : DuplicateDetector.detect(list, new KeyFingerprint<>(columns));
 
-        // 重复key
-        Set<String> duplicationKeys = Sets.newHashSetWithExpectedSize(list.size());
-
-        List<T> validList = list.stream().filter(item -> {
-            Object v = column.apply(item);
-            if (v == null || (v instanceof String && StringUtils.isBlank((String)v))) {
-                return true;
-            }
-            String s = v.toString().trim();
-            if (keys.contains(s)) {
-                duplicationKeys.add(s);
-                context.addFail(item, message);
-                return false;
-            }
-            keys.add(s);
-            return true;
-        }).collect(toList());
-
-        if (CollectionUtils.isEmpty(duplicationKeys)) {
-            return validList;
+        if (duplicated.isEmpty()) {
+            return list;
         }
 
-        return validList.stream().filter(item -> {
-            Object v = column.apply(item);
-            if (v == null || (v instanceof String && StringUtils.isBlank((String)v))) {
-                return true;
-            }
-            String s = v.toString().trim();
-            if (duplicationKeys.contains(s)) {
-                context.addFail(item, message);
-                return false;
+        List<T> validList = new ArrayList<>(list.size() - duplicated.cardinality());
+        List<T> fails = new ArrayList<>(duplicated.cardinality());
+        int index = 0;
+        for (T item : list) {
+            if (duplicated.get(index++)) {
+                fails.add(item);
+            } else {
+                validList.add(item);
             }
-            return true;
-        }).collect(toList());
+        }
+        context.addFails(fails, message);
+        return validList;
     }
 
     /**
@@ -451,9 +1984,292 @@ abstract public class AbstractExcelUploadService<T extends BaseRow, C extends Up
         Validator.validateNotNull(context.getFile(), "上传excel，校验context失败，上传文件不能为空。");
     }
 
+    /**
+     * 按照标题行绑定的列直接填充实体对象，不经过Map和反射拷贝
+     * @param reader
+     * @param t
+     * @return
+     */
     @Override
     public List<T> readAll(ExcelReader reader, Class<T> t) {
-        return reader.readAll(t);
+        BeanRowMapper<T> mapper = t == entityClass ? rowMapper() : BeanRowMapper.create(t);
+        Sheet sheet = reader.getSheet();
+        Row headerRow = sheet.getRow(0);
+        if (headerRow == null) {
+            return new ArrayList<>();
+        }
+        List<Object> header = new ArrayList<>();
+        for (int i = 0; i < headerRow.getLastCellNum(); i++) {
+            header.add(CellUtil.getCellValue(headerRow.getCell(i)));
+        }
+        RowBinding<T> binding = mapper.bind(header, reader.getHeaderAlias());
+
+        int[] columns = binding.getColumns();
+        List<Object> rowList = new ArrayList<>(Collections.nCopies(columns.length == 0 ? 0 : columns[columns.length - 1] + 1, null));
+        List<T> list = new ArrayList<>(Math.max(sheet.getLastRowNum(), 0));
+        for (int rowIndex = 1; rowIndex <= sheet.getLastRowNum(); rowIndex++) {
+            Row row = sheet.getRow(rowIndex);
+            if (row == null) {
+                continue;
+            }
+            for (int column : columns) {
+                rowList.set(column, CellUtil.getCellValue(row.getCell(column)));
+            }
+            if (!binding.isEmptyRow(rowList)) {
+                list.add(binding.map(rowList));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * 获取实体类型的行映射器
+     * @return
+     */
+    protected BeanRowMapper<T> rowMapper() {
+        BeanRowMapper<T> mapper = rowMapper;
+        if (mapper == null) {
+            synchronized (this) {
+                mapper = rowMapper;
+                if (mapper == null) {
+                    rowMapper = mapper = BeanRowMapper.create(entityClass);
+                }
+            }
+        }
+        return mapper;
+    }
+
+    /**
+     * 取消任务
+     *
+     * <p>
+     *     在缓存中设置取消标记，任意节点都可以取消. 执行任务的节点在处理下一块、下一批之前检查标记，
+     *     不再提交新的批次，未开始执行的批次直接取消，执行中的批次不中断，避免业务处理到一半.
+     *     任务进度、锁和检查点只由执行任务的节点在结束时处理，避免被执行中的节点覆盖；
+     *     检查点的心跳已过期（没有节点在执行）时在这里丢弃检查点、标记任务中断并释放锁
+     * </p>
+     * @param taskId
+     * @return 任务不存在或已结束时返回false
+     */
+    @Override
+    public boolean cancel(String taskId) {
+        Task task = getTask(taskId);
+        if (task == null || !Boolean.TRUE.equals(task.getIsRunning())) {
+            return false;
+        }
+        cacheService.setEx(UPLOAD_EXCEL_CANCEL + taskId, String.valueOf(System.currentTimeMillis()), 1L, TimeUnit.HOURS);
+
+        RunningTask running = runningTasks.get(taskId);
+        if (running != null) {
+            // 任务在本节点执行，执行的线程检查到取消后结束任务
+            running.cancel();
+        } else if (Checkpointer.discard(cacheService, taskId)) {
+            // 没有节点在执行，不会再有节点结束任务
+            task.interruptedTask(CANCELLED_MESSAGE);
+            cacheService.setEx(UPLOAD_EXCEL_PROGRESS + taskId, JSON.toJSONString(task), 1L, TimeUnit.HOURS);
+            unLock(task.getOperator(), taskId);
+        }
+        log.info("通用上传任务，taskId={}，已设置取消标记", taskId);
+        return true;
+    }
+
+    /**
+     * 从检查点续传任务
+     *
+     * <p>
+     *     抢占任务心跳后接管操作人的锁，读取检查点记录的落盘文件. 已开始业务处理时按照检查点还原业务处理的数据、
+     *     任务进度和失败列表，已完成的批次不再处理，否则重新执行去重和校验.
+     *     续传失败时释放心跳，保留检查点和落盘文件，只有任务完成或取消时才删除
+     * </p>
+     * @param taskId
+     * @param context
+     * @return 检查点不存在或任务仍在执行时返回false
+     */
+    @Override
+    public boolean resume(String taskId, C context) {
+        if (StringUtils.isEmpty(taskId) || context == null || StringUtils.isEmpty(context.getOperator())) {
+            throw new ServiceException("续传任务，taskId和操作人operator不能为空。");
+        }
+        Checkpointer<T> checkpointer = Checkpointer.load(cacheService, taskId, entityClass);
+        if (checkpointer == null) {
+            log.info("通用上传任务，taskId={}，检查点不存在，无法续传", taskId);
+            return false;
+        }
+        TaskCheckpoint checkpoint = checkpointer.getCheckpoint();
+        if (!context.getOperator().equals(checkpoint.getOperator())) {
+            throw new ServiceException("只能续传本人的导入任务。");
+        }
+        if (!checkpointer.claim()) {
+            log.info("通用上传任务，taskId={}，任务仍在执行中，无法续传", taskId);
+            return false;
+        }
+
+        File localFile = new File(checkpoint.getLocalFile());
+        if (!localFile.isFile()) {
+            log.warn("通用上传任务，taskId={}，落盘文件不存在，无法续传，path={}", taskId, localFile.getAbsolutePath());
+            checkpointer.release();
+            throw new ServiceException("导入文件已不存在，请重新上传。");
+        }
+
+        // 接管任务
+        context.setTask(checkpointer.restartTask());
+        context.setLocalFile(localFile);
+        context.setFailList(null);
+        if (!relock(context)) {
+            checkpointer.release();
+            log.info("通用上传任务，taskId={}，有任务正在处理中，忽略本次续传。", taskId);
+            throw new ServiceException("您当前有导入任务正在处理中，请耐心等待任务完成，稍后再试。");
+        }
+        // 上次执行结束时记录的失败列表，续传结束时重新记录
+        cacheService.del(CacheConstant.UPLOAD_EXCEL_FAIL_LIST + taskId);
+        log.info("通用上传任务，taskId={}，从检查点续传，已连续完成{}批", taskId, checkpoint.getHandledBatches());
+
+        List<T> list;
+        try {
+            list = beforeProcess(context, null, true);
+        } catch (RuntimeException e) {
+            // 保留检查点和落盘文件，稍后可以再次续传
+            checkpointer.release();
+            throw e;
+        }
+        try {
+            executorService.execute(() -> this.doProcess(context, list, Boolean.TRUE.equals(checkpoint.getParallel()), null, checkpointer));
+        } catch (RejectedExecutionException e) {
+            // 保留检查点，稍后可以再次续传
+            unLock(context);
+            checkpointer.release();
+            throw new ServiceException("当前导入任务较多，请稍后再试。");
+        }
+        return true;
+    }
+
+    /**
+     * 任务已取消时抛出异常，结束任务
+     * @param context
+     */
+    private void checkCancelled(C context) {
+        RunningTask running = runningTasks.get(context.getTaskId());
+        if (running != null && running.isCancelled()) {
+            throw new ServiceException(CANCELLED_MESSAGE);
+        }
+    }
+
+    /**
+     * 记录执行中的批次，任务取消时取消未开始执行的批次
+     * @param context
+     * @param future
+     * @return
+     */
+    private Future<Integer> trackBatch(C context, Future<Integer> future) {
+        RunningTask running = runningTasks.get(context.getTaskId());
+        if (running != null) {
+            running.batches.add(future);
+            if (running.cancelled) {
+                future.cancel(false);
+            }
+        }
+        return future;
+    }
+
+    /**
+     * 批次完成后移除记录
+     * @param context
+     * @param future
+     */
+    private void untrackBatch(C context, Future<Integer> future) {
+        RunningTask running = runningTasks.get(context.getTaskId());
+        if (running != null) {
+            running.batches.remove(future);
+        }
+    }
+
+    /**
+     * 批次结束后记录检查点，未开启时直接返回
+     * @param context
+     * @param part
+     * @param completed 批次是否正常完成，处理异常或被取消的批次续传时重新处理
+     */
+    private void checkpoint(C context, List<T> part, boolean completed) {
+        RunningTask running = runningTasks.get(context.getTaskId());
+        if (running == null || running.checkpointer == null) {
+            return;
+        }
+        if (completed) {
+            running.checkpointer.complete(context, part);
+        } else {
+            running.checkpointer.retry(part);
+        }
+    }
+
+    /**
+     * 是否记录检查点
+     * @return
+     */
+    private boolean checkpointEnabled() {
+        return StringUtils.isNotEmpty(checkpointDir()) && !isStreaming();
+    }
+
+    /**
+     * 本节点执行中的任务
+     */
+    private class RunningTask {
+
+        /**
+         * 上传上下文
+         */
+        private final C context;
+
+        /**
+         * 任务检查点，未开启时为空
+         */
+        private final Checkpointer<T> checkpointer;
+
+        /**
+         * 执行中的批次
+         */
+        private final Set<Future<Integer>> batches = ConcurrentHashMap.newKeySet();
+
+        /**
+         * 是否已取消
+         */
+        private volatile boolean cancelled;
+
+        /**
+         * 上次检查缓存中取消标记的时间
+         */
+        private volatile long checkedAt;
+
+        RunningTask(C context, Checkpointer<T> checkpointer) {
+            this.context = context;
+            this.checkpointer = checkpointer;
+        }
+
+        /**
+         * 取消任务，取消未开始执行的批次
+         */
+        void cancel() {
+            cancelled = true;
+            batches.forEach(future -> future.cancel(false));
+        }
+
+        /**
+         * 是否已取消，按间隔检查其他节点设置的取消标记
+         * @return
+         */
+        boolean isCancelled() {
+            long now = System.currentTimeMillis();
+            if (!cancelled && now - checkedAt >= CANCEL_CHECK_INTERVAL) {
+                checkedAt = now;
+                try {
+                    if (StringUtils.isNotEmpty(cacheService.get(UPLOAD_EXCEL_CANCEL + context.getTaskId()))) {
+                        cancel();
+                    }
+                } catch (Exception e) {
+                    log.error("通用上传任务，taskId={}，检查取消标记异常，{}", context.getTaskId(), e.getMessage());
+                }
+            }
+            return cancelled;
+        }
     }
 
     @Override
@@ -541,12 +2357,15 @@ abstract public class AbstractExcelUploadService<T extends BaseRow, C extends Up
      */
     protected void updateTask(C context, int nums, int success, String message) {
         Task progress = context.getTask();
-        progress.addProgress(nums);
-        progress.addSuccess(success);
-        if (StringUtils.isNotEmpty(message)) {
-            progress.setMessage(message);
+        // 多sheet并发处理时会并发更新进度
+        synchronized (progress) {
+            progress.addProgress(nums);
+            progress.addSuccess(success);
+            if (StringUtils.isNotEmpty(message)) {
+                progress.setMessage(message);
+            }
+            cacheService.setEx(UPLOAD_EXCEL_PROGRESS + context.getTaskId(), JSON.toJSONString(progress), 1L, TimeUnit.HOURS);
         }
-        cacheService.setEx(UPLOAD_EXCEL_PROGRESS + context.getTaskId(), JSON.toJSONString(progress), 1L, TimeUnit.HOURS);
     }
 
     /**
@@ -556,12 +2375,14 @@ abstract public class AbstractExcelUploadService<T extends BaseRow, C extends Up
      */
     protected void interruptedTask(C context, String message) {
         Task progress = context.getTask();
-        progress.setIsRunning(false);
-        progress.setInterrupted(true);
-        if (StringUtils.isNotEmpty(message)) {
-            progress.setMessage(message);
+        synchronized (progress) {
+            progress.setIsRunning(false);
+            progress.setInterrupted(true);
+            if (StringUtils.isNotEmpty(message)) {
+                progress.setMessage(message);
+            }
+            cacheService.setEx(UPLOAD_EXCEL_PROGRESS + context.getTaskId(), JSON.toJSONString(progress), 1L, TimeUnit.HOURS);
         }
-        cacheService.setEx(UPLOAD_EXCEL_PROGRESS + context.getTaskId(), JSON.toJSONString(progress), 1L, TimeUnit.HOURS);
     }
 
     /**
@@ -606,7 +2427,22 @@ abstract public class AbstractExcelUploadService<T extends BaseRow, C extends Up
     private boolean lock (C context) {
         try {
             String key = Lock_Prefix + context.getOperator();
-            return cacheService.setNX(key, String.valueOf(System.currentTimeMillis()), 1, TimeUnit.HOURS);
+            return cacheService.setNX(key, context.getTaskId(), 1, TimeUnit.HOURS);
+        } catch (Exception e) {
+            log.error("通用导出任务，获取锁异常," + e.getMessage(), e);
+        }
+        return false;
+    }
+
+    /**
+     * 续传时加锁，锁仍被原任务持有时直接接管
+     * @param context
+     */
+    private boolean relock (C context) {
+        try {
+            String key = Lock_Prefix + context.getOperator();
+            return cacheService.compareAndSet(key, context.getTaskId(), context.getTaskId(), 1, TimeUnit.HOURS)
+                    || cacheService.setNX(key, context.getTaskId(), 1, TimeUnit.HOURS);
         } catch (Exception e) {
             log.error("通用导出任务，获取锁异常," + e.getMessage(), e);
         }
@@ -618,9 +2454,17 @@ abstract public class AbstractExcelUploadService<T extends BaseRow, C extends Up
      * @param context
      */
     private void unLock (C context) {
+        unLock(context.getOperator(), context.getTaskId());
+    }
+
+    /**
+     * 解锁，锁已被其他任务持有时不释放
+     * @param operator
+     * @param taskId
+     */
+    private void unLock (String operator, String taskId) {
         try {
-            String key = Lock_Prefix + context.getOperator();
-            cacheService.del(key);
+            cacheService.compareAndDelete(Lock_Prefix + operator, taskId);
         } catch (Exception e) {
             log.error("通用导出任务，释放锁异常," + e.getMessage(), e);
         }
@@ -0,0 +1,84 @@
+package com.easy.framework.excel.service.upload;
+
+/**
+ * 自适应批次大小
+ *
+ * <p>
+ *     以partSize为初始值，每个批次完成后按照吞吐量（行/毫秒）调整下一批的大小（AIMD）：
+ *     处理异常时减半；吞吐量比之前的平滑值下降超过10%时减为3/4；否则增加固定步长，步长为初始值的1/8.
+ *     调整结果限制在[min, max]之间. 并发处理时多个批次共用一个实例，线程安全
+ * </p>
+ *
+ * @author xiongzhao
+ * @date 2021/9/25
+ */
+final class AdaptiveBatchSizer {
+
+    /**
+     * 平滑系数，新批次吞吐量的权重
+     */
+    private static final double ALPHA = 0.3;
+
+    /**
+     * 批次大小下限
+     */
+    private final int min;
+
+    /**
+     * 批次大小上限
+     */
+    private final int max;
+
+    /**
+     * 增加步长
+     */
+    private final int step;
+
+    /**
+     * 下一批的大小
+     */
+    private int size;
+
+    /**
+     * 平滑后的吞吐量，行/毫秒，0表示还没有样本
+     */
+    private double throughput;
+
+    AdaptiveBatchSizer(int hint, int min, int max) {
+        this.min = Math.max(1, min);
+        this.max = Math.max(this.min, max);
+        this.step = Math.max(1, hint / 8);
+        this.size = Math.min(this.max, Math.max(this.min, hint));
+    }
+
+    /**
+     * 下一批的大小
+     * @return
+     */
+    synchronized int next() {
+        return size;
+    }
+
+    /**
+     * 记录一个批次的处理结果，调整下一批的大小
+     * @param batchSize 批次行数
+     * @param millis 耗时
+     * @param error 是否处理异常
+     * @return 调整后下一批的大小
+     */
+    synchronized int record(int batchSize, long millis, boolean error) {
+        if (error) {
+            size = Math.max(min, size / 2);
+            throughput = 0;
+            return size;
+        }
+        double current = (double) batchSize / Math.max(1L, millis);
+        if (throughput > 0 && current < throughput * 0.9) {
+            size = Math.max(min, size * 3 / 4);
+        } else {
+            size = Math.min(max, size + step);
+        }
+        throughput = throughput == 0 ? current : throughput * (1 - ALPHA) + current * ALPHA;
+        return size;
+    }
+}
@@ -0,0 +1,81 @@
+package com.easy.framework.excel.service.upload;
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+
+/**
+ * 单个任务提交业务处理批次的执行器
+ *
+ * <p>
+ *     记录提交的批次，提交批次的线程等待结果时调用{@link BatchExecutor#help()}在当前线程执行尚未开始的批次.
+ *     上传任务和批次共用线程池、线程全部被等待中的上传任务占用时，批次由各自的上传任务执行，不会死锁.
+ *     线程池拒绝时批次留给提交批次的线程执行，不在其他任务的线程中执行
+ * </p>
+ *
+ * @author xiongzhao
+ * @date 2021/10/18
+ */
+final class BatchExecutor implements Executor {
+
+    /**
+     * 实际执行的线程池
+     */
+    private final Executor executor;
+
+    /**
+     * 是否允许提交批次的线程执行批次
+     */
+    private final boolean helping;
+
+    /**
+     * 已提交、可能尚未开始的批次
+     */
+    private final Deque<RunnableFuture<?>> pending = new ConcurrentLinkedDeque<>();
+
+    /**
+     * @param executor 实际执行的线程池
+     * @param helping 是否允许提交批次的线程执行批次，为false时{@link BatchExecutor#help()}不执行任何批次
+     */
+    BatchExecutor(Executor executor, boolean helping) {
+        this.executor = executor;
+        this.helping = helping;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (helping && command instanceof RunnableFuture) {
+            pending.removeIf(Future::isDone);
+            pending.add((RunnableFuture<?>) command);
+        }
+        try {
+            executor.execute(command);
+        } catch (RejectedExecutionException e) {
+            if (!helping) {
+                command.run();
+            }
+        }
+    }
+
+    /**
+     * 在当前线程执行一个尚未开始的批次
+     * @return 是否执行了批次，没有尚未开始的批次时返回false
+     */
+    boolean help() {
+        RunnableFuture<?> command;
+        while ((command = pending.poll()) != null) {
+            if (command.isDone()) {
+                continue;
+            }
+            // 已在其他线程开始的批次run直接返回
+            command.run();
+            if (command.isDone()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,605 @@
+package com.easy.framework.excel.service.upload;
+
+import cn.hutool.core.io.FileUtil;
+import com.alibaba.fastjson.JSON;
+import com.easy.framework.excel.domain.common.Task;
+import com.easy.framework.excel.domain.common.TaskCheckpoint;
+import com.easy.framework.excel.domain.common.TaskStatistics;
+import com.easy.framework.excel.domain.upload.BaseRow;
+import com.easy.framework.excel.domain.upload.UploadContext;
+import com.easy.framework.core.exception.ServiceException;
+import com.easy.framework.excel.service.common.CacheService;
+import com.google.common.collect.Lists;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.easy.framework.excel.constant.CacheConstant.CHECKPOINT_EXPIRE;
+import static com.easy.framework.excel.constant.CacheConstant.UPLOAD_EXCEL_CHECKPOINT;
+import static com.easy.framework.excel.constant.CacheConstant.UPLOAD_EXCEL_CHECKPOINT_FAILS;
+import static com.easy.framework.excel.constant.CacheConstant.UPLOAD_EXCEL_CHECKPOINT_ROWS;
+import static com.easy.framework.excel.constant.CacheConstant.UPLOAD_EXCEL_HEARTBEAT;
+import static java.util.stream.Collectors.toCollection;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * 任务检查点
+ *
+ * <p>
+ *     开始业务处理时记录去重、校验和过滤之后剩余的行在落盘文件中的序号，按连续区间保存，续传时按序号还原这些行，
+ *     不再重新去重、校验和过滤，已处理批次写入的数据不会改变续传时的分批.
+ *     业务处理按照固定的分片大小分批，每批正常完成后在缓存中记录从第一批开始连续完成的批次数、并发时先完成的后续批次、
+ *     新增的失败数据和任务进度，处理异常的批次不记录为完成，续传时重新处理.
+ *     失败数据按200行一段增量写入集合，每段以其在失败列表中的起始位置为前缀，恢复时只读取检查点记录的行数以内的段并按位置排序.
+ *     每次续传将失败数据重新写入新版本的集合，上次执行中写入了段但没有记录检查点时，这些段不会被重复读取.
+ *     执行任务的节点定时刷新心跳，心跳过期说明节点已停止，其他节点可以抢占心跳后续传.
+ *     落盘文件在检查点过期后由{@link Checkpointer#sweep}删除
+ * </p>
+ *
+ * @param <T> excel行数据对应的实体类
+ *
+ * @author xiongzhao
+ * @date 2021/10/16
+ */
+@Slf4j
+final class Checkpointer<T extends BaseRow> {
+
+    /**
+     * 心跳超时时间，秒
+     */
+    private static final long HEARTBEAT_EXPIRE = 30L;
+
+    /**
+     * 心跳刷新间隔，秒
+     */
+    private static final long HEARTBEAT_INTERVAL = 10L;
+
+    /**
+     * 失败数据每段的行数
+     */
+    private static final int FAIL_CHUNK_SIZE = 200;
+
+    /**
+     * 失败数据段前缀的长度
+     */
+    private static final int FAIL_CHUNK_PREFIX = 10;
+
+    /**
+     * 清理过期落盘文件的间隔，毫秒
+     */
+    private static final long SWEEP_INTERVAL = 60 * 60 * 1000L;
+
+    /**
+     * 各目录上次清理过期落盘文件的时间
+     */
+    private static final Map<String, Long> SWEPT = new ConcurrentHashMap<>();
+
+    /**
+     * 当前节点标识
+     */
+    private static final String NODE = ManagementFactory.getRuntimeMXBean().getName();
+
+    /**
+     * 心跳刷新线程
+     */
+    private static final ScheduledExecutorService HEARTBEAT = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "easy-excel-checkpoint-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final CacheService cacheService;
+
+    private final Class<T> entityClass;
+
+    /**
+     * 检查点
+     */
+    private final TaskCheckpoint checkpoint;
+
+    /**
+     * 已完成的批次
+     */
+    private final BitSet done = new BitSet();
+
+    /**
+     * 未完成的批次及其序号
+     */
+    private final Map<List<T>, Integer> indexes = new IdentityHashMap<>();
+
+    /**
+     * 已写入缓存的失败行数
+     */
+    private int persistedFails;
+
+    /**
+     * 本次执行中处理异常的批次的行数
+     */
+    private int retryRows;
+
+    /**
+     * 是否已放弃记录检查点
+     */
+    private boolean abandoned;
+
+    /**
+     * 心跳刷新任务
+     */
+    private ScheduledFuture<?> heartbeat;
+
+    private Checkpointer(CacheService cacheService, Class<T> entityClass, TaskCheckpoint checkpoint) {
+        this.cacheService = cacheService;
+        this.entityClass = entityClass;
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * 新任务创建检查点，开始刷新心跳
+     * @param cacheService
+     * @param context 上传文件已落盘的上下文
+     * @param entityClass
+     * @param parallel 是否并发执行
+     * @param partSize 分片大小
+     * @return
+     */
+    static <T extends BaseRow> Checkpointer<T> create(CacheService cacheService, UploadContext<T> context, Class<T> entityClass,
+                                                      boolean parallel, int partSize) {
+        TaskCheckpoint checkpoint = new TaskCheckpoint()
+                .setTaskId(context.getTaskId())
+                .setOperator(context.getOperator())
+                .setLocalFile(context.getLocalFile().getAbsolutePath())
+                .setParallel(parallel)
+                .setPartSize(partSize);
+        Checkpointer<T> checkpointer = new Checkpointer<>(cacheService, entityClass, checkpoint);
+        checkpointer.beat();
+        checkpointer.startHeartbeat();
+        checkpointer.save(context);
+        return checkpointer;
+    }
+
+    /**
+     * 读取缓存中的检查点
+     * @param cacheService
+     * @param taskId
+     * @param entityClass
+     * @return 检查点不存在时返回null
+     */
+    static <T extends BaseRow> Checkpointer<T> load(CacheService cacheService, String taskId, Class<T> entityClass) {
+        String str = cacheService.get(UPLOAD_EXCEL_CHECKPOINT + taskId);
+        if (StringUtils.isEmpty(str)) {
+            return null;
+        }
+        return new Checkpointer<>(cacheService, entityClass, JSON.parseObject(str, TaskCheckpoint.class));
+    }
+
+    /**
+     * 丢弃没有节点在执行的检查点，删除落盘文件
+     *
+     * <p>
+     *     先抢占心跳，心跳仍存活说明有节点在执行或续传该任务，不丢弃，由该节点检查到取消标记后清理
+     * </p>
+     * @param cacheService
+     * @param taskId
+     * @return 丢弃了检查点时返回true，有节点在执行或检查点不存在时返回false
+     */
+    static boolean discard(CacheService cacheService, String taskId) {
+        String heartbeat = UPLOAD_EXCEL_HEARTBEAT + taskId;
+        if (!cacheService.setNX(heartbeat, NODE, HEARTBEAT_EXPIRE, TimeUnit.SECONDS)) {
+            return false;
+        }
+        try {
+            String str = cacheService.get(UPLOAD_EXCEL_CHECKPOINT + taskId);
+            if (StringUtils.isEmpty(str)) {
+                return false;
+            }
+            TaskCheckpoint checkpoint = JSON.parseObject(str, TaskCheckpoint.class);
+            if (StringUtils.isNotEmpty(checkpoint.getLocalFile())) {
+                FileUtil.del(checkpoint.getLocalFile());
+            }
+            cacheService.del(UPLOAD_EXCEL_CHECKPOINT + taskId);
+            cacheService.del(failsKey(checkpoint));
+            cacheService.del(UPLOAD_EXCEL_CHECKPOINT_ROWS + taskId);
+            return true;
+        } finally {
+            cacheService.compareAndDelete(heartbeat, NODE);
+        }
+    }
+
+    /**
+     * 删除目录中超过检查点有效期、且检查点已不存在的落盘文件
+     *
+     * <p>
+     *     异常结束的任务保留落盘文件用于续传，没有续传时检查点过期后文件不再有用.
+     *     文件名为任务id加扩展名，每个目录每小时最多清理一次，清理失败只记录日志
+     * </p>
+     * @param cacheService
+     * @param dir 落盘目录
+     */
+    static void sweep(CacheService cacheService, File dir) {
+        long now = System.currentTimeMillis();
+        Long last = SWEPT.get(dir.getAbsolutePath());
+        if (last != null && now - last < SWEEP_INTERVAL || !dir.isDirectory()) {
+            return;
+        }
+        SWEPT.put(dir.getAbsolutePath(), now);
+        File[] files = dir.listFiles(File::isFile);
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (now - file.lastModified() < CHECKPOINT_EXPIRE * 1000L) {
+                continue;
+            }
+            try {
+                // 没有扩展名时任务id就是文件名
+                if (StringUtils.isEmpty(cacheService.get(UPLOAD_EXCEL_CHECKPOINT + FileUtil.mainName(file)))
+                        && StringUtils.isEmpty(cacheService.get(UPLOAD_EXCEL_CHECKPOINT + file.getName()))) {
+                    FileUtil.del(file);
+                    log.info("通用上传任务，检查点已过期，删除落盘文件，path={}", file.getAbsolutePath());
+                }
+            } catch (Exception e) {
+                log.error("通用上传任务，清理落盘文件异常，path={}，{}", file.getAbsolutePath(), e.getMessage());
+                return;
+            }
+        }
+    }
+
+    TaskCheckpoint getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * 抢占心跳，成功后开始刷新
+     * @return 心跳未过期，任务仍在其他节点执行时返回false
+     */
+    boolean claim() {
+        if (!cacheService.setNX(UPLOAD_EXCEL_HEARTBEAT + checkpoint.getTaskId(), NODE, HEARTBEAT_EXPIRE, TimeUnit.SECONDS)) {
+            return false;
+        }
+        startHeartbeat();
+        return true;
+    }
+
+    /**
+     * 续传的任务进度，保留任务id和开始时间，处理数在恢复检查点时还原
+     * @return
+     */
+    Task restartTask() {
+        Task snapshot = checkpoint.getTask();
+        Task task = new Task(snapshot.getTotal(), checkpoint.getOperator());
+        return task.setTaskId(checkpoint.getTaskId()).setStartTime(snapshot.getStartTime());
+    }
+
+    /**
+     * 是否从已开始业务处理的检查点续传，续传时业务处理的数据通过{@link Checkpointer#restoreRows}还原
+     * @return
+     */
+    boolean isResumed() {
+        return checkpoint.getHandledBatches() != null;
+    }
+
+    /**
+     * 是否保留检查点用于续传，放弃记录检查点后返回false
+     * @return
+     */
+    synchronized boolean isResumable() {
+        return !abandoned;
+    }
+
+    /**
+     * 续传时按照检查点记录的序号还原业务处理的数据
+     * @param list 从落盘文件读取的全部数据
+     * @return 首次执行时去重、校验和过滤之后剩余的数据，顺序不变
+     */
+    List<T> restoreRows(List<T> list) {
+        String str = cacheService.get(UPLOAD_EXCEL_CHECKPOINT_ROWS + checkpoint.getTaskId());
+        int validSize = checkpoint.getValidSize() == null ? -1 : checkpoint.getValidSize();
+        List<T> rows = new ArrayList<>(Math.max(0, validSize));
+        if (StringUtils.isNotEmpty(str)) {
+            for (String range : str.split(",")) {
+                int separator = range.indexOf('-');
+                int from = Integer.parseInt(range.substring(0, separator));
+                int to = Integer.parseInt(range.substring(separator + 1));
+                if (to >= list.size()) {
+                    break;
+                }
+                rows.addAll(list.subList(from, to + 1));
+            }
+        }
+        if (rows.size() != validSize) {
+            throw new ServiceException("检查点记录的数据行与导入文件不一致，无法续传。");
+        }
+        return rows;
+    }
+
+    /**
+     * 开始业务处理，按照检查点的分片大小分批
+     *
+     * <p>
+     *     第一次执行时记录业务处理的数据行和检查点，数据行不是从落盘文件读取的对象时放弃记录检查点；
+     *     续传时还原失败列表、任务进度和处理统计，跳过已完成的批次
+     * </p>
+     * @param context
+     * @param list 从落盘文件读取的全部数据
+     * @param validList 业务校验之后的数据，续传时为{@link Checkpointer#restoreRows}的返回值
+     * @return 需要处理的批次
+     */
+    synchronized List<List<T>> begin(UploadContext<T> context, List<T> list, List<T> validList) {
+        List<List<T>> partList = Lists.partition(validList, checkpoint.getPartSize());
+        boolean resumed = isResumed();
+        if (resumed) {
+            String staleFails = failsKey(checkpoint);
+            restore(context);
+            // 失败数据已写入新版本的集合后删除上次的集合
+            if (save(context)) {
+                cacheService.del(staleFails);
+            }
+        } else if (saveRows(list, validList)) {
+            checkpoint.setValidSize(validList.size()).setHandledBatches(0);
+            save(context);
+        } else {
+            abandon();
+            return partList;
+        }
+
+        List<List<T>> pending = new ArrayList<>(Math.max(0, partList.size() - done.cardinality()));
+        for (int i = 0; i < partList.size(); i++) {
+            if (!done.get(i)) {
+                List<T> part = partList.get(i);
+                pending.add(part);
+                indexes.put(part, i);
+            }
+        }
+        if (resumed) {
+            log.info("通用上传任务，taskId={}，从检查点恢复，跳过已完成的{}批，剩余{}批，失败数={}",
+                    checkpoint.getTaskId(), partList.size() - pending.size(), pending.size(), persistedFails);
+        }
+        return pending;
+    }
+
+    /**
+     * 一个批次完成，更新检查点
+     * @param context
+     * @param part {@link Checkpointer#begin}返回的批次
+     */
+    synchronized void complete(UploadContext<T> context, List<T> part) {
+        Integer index = indexes.remove(part);
+        // 放弃记录检查点后没有登记批次
+        if (index == null) {
+            return;
+        }
+        done.set(index);
+        int handled = done.nextClearBit(0);
+        checkpoint.setHandledBatches(handled);
+        checkpoint.setCompletedBatches(done.stream().filter(i -> i > handled).boxed().collect(toList()));
+        save(context);
+    }
+
+    /**
+     * 一个批次处理异常，不记录为完成，续传时重新处理
+     *
+     * <p>
+     *     批次的行数已计入任务进度，记录在检查点中，续传时从任务进度中扣除
+     * </p>
+     * @param part {@link Checkpointer#begin}返回的批次
+     */
+    synchronized void retry(List<T> part) {
+        if (indexes.remove(part) == null) {
+            return;
+        }
+        retryRows += part.size();
+        checkpoint.setRetryRows(retryRows);
+    }
+
+    /**
+     * 停止刷新心跳，保留检查点，其他节点可以立即续传
+     */
+    synchronized void release() {
+        if (heartbeat != null) {
+            heartbeat.cancel(false);
+            heartbeat = null;
+        }
+        try {
+            cacheService.del(UPLOAD_EXCEL_HEARTBEAT + checkpoint.getTaskId());
+        } catch (Exception e) {
+            log.error("通用上传任务，taskId={}，删除心跳异常，{}", checkpoint.getTaskId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 任务结束，停止刷新心跳并删除检查点
+     */
+    synchronized void clear() {
+        release();
+        try {
+            cacheService.del(UPLOAD_EXCEL_CHECKPOINT + checkpoint.getTaskId());
+            cacheService.del(failsKey(checkpoint));
+            cacheService.del(UPLOAD_EXCEL_CHECKPOINT_ROWS + checkpoint.getTaskId());
+        } catch (Exception e) {
+            log.error("通用上传任务，taskId={}，删除检查点异常，{}", checkpoint.getTaskId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 记录业务处理的数据行在全部数据中的序号，连续的序号合并为区间，格式为"起始-结束,起始-结束"
+     * @param list 从落盘文件读取的全部数据
+     * @param validList 业务校验之后的数据
+     * @return validList中有不在list中的对象时返回false
+     */
+    private boolean saveRows(List<T> list, List<T> validList) {
+        Map<T, Integer> ordinals = new IdentityHashMap<>(list.size());
+        for (int i = 0; i < list.size(); i++) {
+            ordinals.put(list.get(i), i);
+        }
+        StringBuilder ranges = new StringBuilder();
+        int from = -1;
+        int to = -1;
+        for (T row : validList) {
+            Integer ordinal = ordinals.get(row);
+            if (ordinal == null) {
+                return false;
+            }
+            if (from >= 0 && ordinal == to + 1) {
+                to = ordinal;
+                continue;
+            }
+            if (from >= 0) {
+                ranges.append(from).append('-').append(to).append(',');
+            }
+            from = ordinal;
+            to = ordinal;
+        }
+        if (from >= 0) {
+            ranges.append(from).append('-').append(to);
+        }
+        cacheService.setEx(UPLOAD_EXCEL_CHECKPOINT_ROWS + checkpoint.getTaskId(), ranges.toString(), CHECKPOINT_EXPIRE, TimeUnit.SECONDS);
+        return true;
+    }
+
+    /**
+     * 业务处理的数据行无法定位时放弃记录检查点，删除已有的检查点，避免续传时重新处理已处理的数据
+     */
+    private void abandon() {
+        log.warn("通用上传任务，taskId={}，业务校验返回的数据不是读取的原对象，无法记录检查点，任务异常结束后不能续传", checkpoint.getTaskId());
+        abandoned = true;
+        try {
+            cacheService.del(UPLOAD_EXCEL_CHECKPOINT + checkpoint.getTaskId());
+            cacheService.del(failsKey(checkpoint));
+        } catch (Exception e) {
+            log.error("通用上传任务，taskId={}，删除检查点异常，{}", checkpoint.getTaskId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 还原失败列表、任务进度和已完成的批次，读取失败时抛出异常，避免丢失失败数据
+     *
+     * <p>
+     *     失败数据切换到新版本的集合，下次记录检查点时全部重新写入；需要重新处理的批次的行数从任务进度中扣除
+     * </p>
+     * @param context
+     */
+    private void restore(UploadContext<T> context) {
+        List<T> fails = loadFails();
+        synchronized (context) {
+            context.setFailList(fails.isEmpty() ? null : fails);
+        }
+        persistedFails = 0;
+        checkpoint.setFailsVersion(checkpoint.getFailsVersion() == null ? 1 : checkpoint.getFailsVersion() + 1);
+
+        Task snapshot = checkpoint.getTask();
+        Task progress = context.getTask();
+        int retried = checkpoint.getRetryRows() == null ? 0 : checkpoint.getRetryRows();
+        checkpoint.setRetryRows(null);
+        synchronized (progress) {
+            progress.setProcessedNums(snapshot.getProcessedNums() - retried)
+                    .setSuccess(snapshot.getSuccess())
+                    .setStatistics(snapshot.getStatistics() != null ? snapshot.getStatistics() : new TaskStatistics());
+        }
+
+        done.set(0, checkpoint.getHandledBatches());
+        if (checkpoint.getCompletedBatches() != null) {
+            checkpoint.getCompletedBatches().forEach(done::set);
+        }
+    }
+
+    /**
+     * 读取检查点记录的失败数据，按在失败列表中的位置排序
+     * @return
+     */
+    private List<T> loadFails() {
+        int failSize = checkpoint.getFailSize() == null ? 0 : checkpoint.getFailSize();
+        List<String> chunks = failSize == 0 ? null : cacheService.sMembers(failsKey(checkpoint));
+        if (CollectionUtils.isEmpty(chunks)) {
+            return new ArrayList<>();
+        }
+        return chunks.stream()
+                .filter(chunk -> Integer.parseInt(chunk.substring(0, FAIL_CHUNK_PREFIX)) < failSize)
+                .sorted()
+                .flatMap(chunk -> JSON.parseArray(chunk.substring(FAIL_CHUNK_PREFIX), entityClass).stream())
+                .collect(toCollection(ArrayList::new));
+    }
+
+    /**
+     * 写入新增的失败数据和检查点，写入失败时只记录日志，下一批完成时再次写入
+     * @param context
+     * @return 是否写入成功
+     */
+    private boolean save(UploadContext<T> context) {
+        try {
+            saveFails(context);
+            checkpoint.setFailSize(persistedFails).setUpdateTime(System.currentTimeMillis());
+            String json;
+            Task progress = context.getTask();
+            synchronized (progress) {
+                checkpoint.setTask(progress);
+                json = JSON.toJSONString(checkpoint);
+            }
+            cacheService.setEx(UPLOAD_EXCEL_CHECKPOINT + checkpoint.getTaskId(), json, CHECKPOINT_EXPIRE, TimeUnit.SECONDS);
+            return true;
+        } catch (Exception e) {
+            log.error(String.format("通用上传任务，taskId=%s，记录检查点异常，%s", checkpoint.getTaskId(), e.getMessage()), e);
+            return false;
+        }
+    }
+
+    /**
+     * 增量写入失败数据
+     * @param context
+     */
+    private void saveFails(UploadContext<T> context) {
+        List<T> fails;
+        synchronized (context) {
+            List<T> failList = context.getFailList();
+            int size = failList == null ? 0 : failList.size();
+            if (size <= persistedFails) {
+                return;
+            }
+            fails = new ArrayList<>(failList.subList(persistedFails, size));
+        }
+        List<String> chunks = new ArrayList<>(fails.size() / FAIL_CHUNK_SIZE + 1);
+        for (int i = 0; i < fails.size(); i += FAIL_CHUNK_SIZE) {
+            String prefix = String.format("%0" + FAIL_CHUNK_PREFIX + "d", persistedFails + i);
+            chunks.add(prefix + JSON.toJSONString(fails.subList(i, Math.min(i + FAIL_CHUNK_SIZE, fails.size()))));
+        }
+        cacheService.sAdd(failsKey(checkpoint), chunks, CHECKPOINT_EXPIRE, TimeUnit.SECONDS);
+        persistedFails += fails.size();
+    }
+
+    /**
+     * 检查点当前版本的失败数据集合
+     * @param checkpoint
+     * @return
+     */
+    private static String failsKey(TaskCheckpoint checkpoint) {
+        Integer version = checkpoint.getFailsVersion();
+        return UPLOAD_EXCEL_CHECKPOINT_FAILS + checkpoint.getTaskId() + (version == null ? "" : "_" + version);
+    }
+
+    /**
+     * 刷新心跳
+     */
+    private void beat() {
+        try {
+            cacheService.setEx(UPLOAD_EXCEL_HEARTBEAT + checkpoint.getTaskId(), NODE, HEARTBEAT_EXPIRE, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.error("通用上传任务，taskId={}，刷新心跳异常，{}", checkpoint.getTaskId(), e.getMessage());
+        }
+    }
+
+    private synchronized void startHeartbeat() {
+        heartbeat = HEARTBEAT.scheduleWithFixedDelay(this::beat, HEARTBEAT_INTERVAL, HEARTBEAT_INTERVAL, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,64 @@
+package com.easy.framework.excel.service.upload;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * 列表去重检测
+ *
+ * <p>
+ *     只遍历一次列表，每行计算一次128位指纹，开放寻址表中保存指纹和首次出现的下标，不保存key字符串.
+ *     指纹相同时比较两行去重字段的实际值，确认相同才标记为重复，指纹冲突不会导致误判
+ * </p>
+ *
+ * @author xiongzhao
+ * @date 2021/8/21
+ */
+final class DuplicateDetector {
+
+    private DuplicateDetector() {
+    }
+
+    /**
+     * 检测重复的行
+     * @param list
+     * @param fingerprint 去重key的指纹
+     * @param <T>
+     * @return 重复的行的下标，首次出现的行和之后重复出现的行都会被标记
+     */
+    static <T> BitSet detect(List<T> list, KeyFingerprint<T> fingerprint) {
+        List<T> rows = list instanceof RandomAccess ? list : new ArrayList<>(list);
+        int capacity = Integer.highestOneBit(Math.max(rows.size(), 8) * 2 - 1) << 1;
+        int mask = capacity - 1;
+        long[] highs = new long[capacity];
+        long[] lows = new long[capacity];
+        int[] indexes = new int[capacity];
+        BitSet duplicated = new BitSet(rows.size());
+
+        for (int i = 0; i < rows.size(); i++) {
+            T item = rows.get(i);
+            if (!fingerprint.compute(item)) {
+                continue;
+            }
+            long high = fingerprint.high();
+            long low = fingerprint.low();
+            int slot = FingerprintSet.slot(high) & mask;
+            while (highs[slot] != 0) {
+                if (highs[slot] == high && lows[slot] == low && fingerprint.sameKey(rows.get(indexes[slot]), item)) {
+                    duplicated.set(indexes[slot]);
+                    duplicated.set(i);
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (highs[slot] == 0) {
+                highs[slot] = high;
+                lows[slot] = low;
+                indexes[slot] = i;
+            }
+        }
+        return duplicated;
+    }
+}
@@ -2,12 +2,17 @@ package com.easy.framework.excel.service.upload;
 
 import cn.hutool.poi.excel.ExcelReader;
 import cn.hutool.poi.excel.ExcelWriter;
+import com.easy.framework.core.exception.AppException;
 import com.easy.framework.excel.domain.common.Task;
 import com.easy.framework.excel.domain.upload.BaseRow;
 import com.easy.framework.excel.domain.upload.UploadContext;
+import com.easy.framework.excel.enums.ReadMode;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
@@ -49,7 +54,7 @@ public interface ExcelUploadService<T extends BaseRow, C extends UploadContext<T
      * <p>
      *     1. 异步执行整体任务：
      *     解析excel同步执行，执行具体业务逻辑异步处理
-     *     使用默认线程池，核心线程数4，最大线程数10，队列大小100
+     *     使用默认线程池，核心线程数4，最大线程数10，队列大小100；并发处理的批次使用单独的批次线程池，核心线程数4
      *     2. excel每一行并发执行：
      *     通过设置isParallel为true，同时指定{@link ExcelUploadService#partSize}分片大小，即可触发excel上传
      *     任务并发执行.
@@ -66,7 +71,7 @@ public interface ExcelUploadService<T extends BaseRow, C extends UploadContext<T
      * <p>
      *     1. 异步执行整体任务：
      *     解析excel同步执行，执行具体业务逻辑异步处理
-     *     使用默认线程池，核心线程数4，最大线程数10，队列大小100
+     *     使用自定义线程池，并发处理的批次同样提交到该线程池
      *     2. excel每一行并发执行：
      *     通过设置isParallel为true，同时指定{@link ExcelUploadService#partSize}分片大小，即可触发excel上传
      *     任务并发执行.
@@ -97,6 +102,138 @@ public interface ExcelUploadService<T extends BaseRow, C extends UploadContext<T
      */
     List<T> readAll(ExcelReader reader, Class<T> t);
 
+    /**
+     * excel读取方式，默认{@link ReadMode#DOM}
+     *
+     * <p>
+     *     大文件建议使用{@link ReadMode#SAX}，逐行解析，内存占用与excel行数无关，仅支持xlsx格式，
+     *     该方式不经过{@link ExcelUploadService#readAll(ExcelReader, Class)}，标题别名和最大行数限制同样生效.
+     *     该方式总是先将上传文件落盘到本地临时文件，按文件路径打开，避免POI从流打开时将zip内容全部解压到堆内
+     * </p>
+     * @return
+     */
+    default ReadMode readMode() {
+        return ReadMode.DOM;
+    }
+
+    /**
+     * 是否流式处理，默认否
+     *
+     * <p>
+     *     流式处理时不再生成全部数据的列表，数据按照{@link ExcelUploadService#partSize}分块，逐块经过去重、
+     *     校验、{@link ExcelUploadService#filterList}、{@link ExcelUploadService#handle}处理，excel解析未完成时即可开始业务处理，
+     *     跨块只保留去重信息，配合{@link ReadMode#SAX}使用时内存占用与excel行数无关.
+     *     注意：filterList每次只接收一个块的数据；预处理时会先读取一遍excel统计行数、收集重复数据.
+     * </p>
+     * @return
+     */
+    default boolean isStreaming() {
+        return false;
+    }
+
+    /**
+     * 是否流水线处理，默认否
+     *
+     * <p>
+     *     开启后数据按照{@link ExcelUploadService#partSize}分块，去重和格式校验、{@link ExcelUploadService#filterList}、
+     *     {@link ExcelUploadService#handle}分别在独立的线程中执行，阶段之间通过容量为2块的有界队列传递数据，
+     *     第N块业务处理时第N+1块已在校验，总耗时接近最慢的阶段而不是各阶段之和，适用于大文件.
+     *     注意：filterList每次只接收一个块的数据，且与handle并发调用；列表处理时数据不超过一块则不使用流水线.
+     *     流式处理时同样生效
+     * </p>
+     * @return
+     */
+    default boolean pipelined() {
+        return false;
+    }
+
+    /**
+     * 是否读取全部sheet，默认否，只读取第一个sheet
+     *
+     * <p>
+     *     开启后excel中的每个sheet都按照{@link ExcelUploadService#addHeaderAlias()}读取，第一行均为标题行，
+     *     所有sheet共用一个任务进度和失败列表，去重和最大行数限制对全部sheet生效.
+     *     {@link ReadMode#SAX}时各sheet在线程池中并发解析；流式处理且isParallel为true时，各sheet在线程池中并发处理，
+     *     sheet内的批次依次处理，此时{@link ExcelUploadService#filterList}和{@link ExcelUploadService#handle}会被并发调用
+     * </p>
+     * @return
+     */
+    default boolean readAllSheets() {
+        return false;
+    }
+
+    /**
+     * 是否将上传文件先落盘到本地临时文件，默认否
+     *
+     * <p>
+     *     落盘后按文件路径打开excel，POI直接从文件读取zip内容，避免上传内容和解压内容在堆内各保存一份，
+     *     大文件、流式处理建议开启. 临时文件保存在{@link UploadContext#getLocalFile()}，任务结束后删除
+     * </p>
+     * @return
+     */
+    default boolean spoolFile() {
+        return false;
+    }
+
+    /**
+     * 断点续传的检查点目录，默认为空，不记录检查点
+     *
+     * <p>
+     *     指定后上传文件落盘到该目录，业务处理每完成一批在缓存中记录检查点：从第一批开始连续完成的批次数、
+     *     并发时先完成的后续批次、截至当前的失败数据和任务进度. 执行任务的节点重启或任务异常中断后，
+     *     可通过{@link ExcelUploadService#resume}在任意能访问该目录的节点续传，已完成的批次不再处理，多节点部署时需使用共享目录.
+     *     开始业务处理时记录校验之后剩余的行，续传时直接还原，不再执行去重、校验、已导入过滤和{@link ExcelUploadService#filterList}，
+     *     要求{@link ExcelUploadService#filterList}返回读取的原对象，否则不记录检查点.
+     *     处理异常的批次不记录为完成，续传时重新处理；没有续传的落盘文件在检查点过期后删除.
+     *     注意：并发处理时，节点停止前正在处理的批次续传时会再处理一次；仅列表处理时生效，开启后不使用流水线和自适应分片
+     * </p>
+     * @return
+     */
+    default String checkpointDir() {
+        return null;
+    }
+
+    /**
+     * 事件模式读取时是否使用基于临时文件的共享字符串表，默认否
+     *
+     * <p>
+     *     xlsx中的字符串单元格保存在共享字符串表中，默认全部加载到堆内，唯一值很多的大文件可能占用数百MB.
+     *     开启后字符串写入临时文件，通过内存映射的偏移索引按需读取，堆内存占用与唯一字符串的数量无关，
+     *     仅{@link ReadMode#SAX}时生效
+     * </p>
+     * @return
+     */
+    default boolean diskSharedStrings() {
+        return false;
+    }
+
+    /**
+     * csv文件的字符集，默认UTF-8
+     *
+     * <p>
+     *     上传文件扩展名为csv时，不经过POI，直接在落盘文件的内存映射上解析，只解码标题别名中配置的列.
+     *     字符集需要兼容ASCII，如UTF-8、GBK、GB18030，excel另存的csv一般为GBK
+     * </p>
+     * @return
+     */
+    default Charset csvCharset() {
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * 是否并发执行非空、格式等基本校验，默认否
+     *
+     * <p>
+     *     开启后数据按固定大小拆分，在{@link java.util.concurrent.ForkJoinPool#commonPool()}中并发执行{@link BaseRow#validate()}，
+     *     各分片的失败数据按原顺序合并到失败列表. 适用于校验逻辑较重（正则、日期解析等）的模板，
+     *     validate方法需要线程安全，数据较少时仍然单线程校验
+     * </p>
+     * @return
+     */
+    default boolean parallelValidate() {
+        return false;
+    }
+
     /**
      * 数据去重key
      *
@@ -107,6 +244,35 @@ public interface ExcelUploadService<T extends BaseRow, C extends UploadContext<T
         return null;
     }
 
+    /**
+     * 组合去重key，多个字段的值都相同时视为重复
+     *
+     * <p>
+     *     默认使用{@link ExcelUploadService#deDuplicationKey()}. 组合key不拼接字符串，而是对各字段的值计算128位指纹，
+     *     每行只占用几十字节；列表处理时指纹相同再比较实际值，流式处理时只比较指纹.
+     *     任一字段为空的行不参与去重
+     * </p>
+     * @return
+     */
+    default List<Function<T, Object>> deDuplicationKeys() {
+        Function<T, Object> key = deDuplicationKey();
+        return key == null ? null : Collections.singletonList(key);
+    }
+
+    /**
+     * 是否使用基于临时文件的外部去重，默认否
+     *
+     * <p>
+     *     默认去重时所有key的指纹保存在堆内，每行占用几十字节，数百万行的文件可能占用数百MB.
+     *     开启后指纹按哈希分区写入临时文件，读取完成后逐个分区检测重复，堆内存占用与行数基本无关，
+     *     重复判定规则不变. 超大文件配合{@link ExcelUploadService#isStreaming()}使用
+     * </p>
+     * @return
+     */
+    default boolean externalDeDuplication() {
+        return false;
+    }
+
     /**
      * 出现重复错误提示
      * @return
@@ -115,6 +281,45 @@ public interface ExcelUploadService<T extends BaseRow, C extends UploadContext<T
         return null;
     }
 
+    /**
+     * 已导入数据过滤器名称，为空时不启用，默认不启用
+     *
+     * <p>
+     *     启用后在非空、格式校验之后，{@link ExcelUploadService#filterList}之前，通过{@link com.easy.framework.excel.service.common.CacheService}
+     *     中的可扩展布隆过滤器，按照{@link ExcelUploadService#deDuplicationKeys()}找出以前的任务可能已导入的数据，
+     *     交给{@link ExcelUploadService#confirmImported}批量确认，确认已导入的数据不再进入filterList逐行查库.
+     *     每批数据全部处理成功后写入过滤器，部分成功的批次无法区分成功的行，不写入.
+     *     同一业务的上传使用相同的名称，过滤器的每一层在创建30天后过期
+     * </p>
+     * @return
+     */
+    default String importedFilterName() {
+        return null;
+    }
+
+    /**
+     * 数据已导入的错误提示
+     * @return
+     */
+    default String importedErrorMessage() {
+        return "数据已导入，请勿重复上传";
+    }
+
+    /**
+     * 确认已导入的数据
+     *
+     * <p>
+     *     布隆过滤器存在误判（0.1%），判定为已导入的数据不一定已导入，启用{@link ExcelUploadService#importedFilterName()}时需要覆盖该方法，
+     *     按照去重key批量查询后只返回确实已导入的数据. 默认不确认，返回空列表，可疑数据全部继续处理，避免新数据因误判被永久拒绝
+     * </p>
+     * @param suspects 过滤器判定为可能已导入的数据
+     * @param context
+     * @return 确实已导入的数据
+     */
+    default List<T> confirmImported(List<T> suspects, C context) {
+        return Collections.emptyList();
+    }
+
     /**
      * 进行业务校验并过滤掉不符合条件的数据
      * 不符合条件的需要添加到错误列表中，并记录原因
@@ -139,6 +344,36 @@ public interface ExcelUploadService<T extends BaseRow, C extends UploadContext<T
      */
     Task getTask(String taskId);
 
+    /**
+     * 取消执行中的任务
+     *
+     * <p>
+     *     任意节点都可以调用，任务不再提交新的批次，执行中的批次处理完成后结束，由执行任务的节点将任务标记为中断并释放锁.
+     *     抽象父类已实现该方法，默认不支持取消，返回false
+     * </p>
+     * @param taskId
+     * @return 任务不存在或已结束时返回false
+     */
+    default boolean cancel(String taskId) {
+        return false;
+    }
+
+    /**
+     * 从检查点续传任务，使用默认线程池异步执行
+     *
+     * <p>
+     *     开启{@link ExcelUploadService#checkpointDir()}时可用，任务的心跳过期（执行的节点已停止）或任务异常中断后，
+     *     任意节点都可以调用. 使用原任务id、落盘文件和分批方式继续处理，还原任务进度和失败列表.
+     *     抽象父类已实现该方法，默认不支持续传，返回false
+     * </p>
+     * @param taskId 原任务id
+     * @param context 续传使用的上下文，操作人与原任务一致，不需要上传文件
+     * @return 检查点不存在或任务仍在执行时返回false
+     */
+    default boolean resume(String taskId, C context) {
+        return false;
+    }
+
     /**
      * 导出失败列表
      *
@@ -173,6 +408,116 @@ public interface ExcelUploadService<T extends BaseRow, C extends UploadContext<T
      */
     int partSize();
 
+    /**
+     * 并发处理时单个任务同时处理中的最大批次数，默认4
+     *
+     * <p>
+     *     isParallel为true时批次按顺序提交到线程池，处理中的批次达到上限后等待任一批次完成再提交，任务进度按批次完成的顺序更新，
+     *     避免单个大文件占满线程池队列或影响其他任务. 等待批次完成时，尚未开始的批次由当前任务的线程执行，
+     *     线程池没有空闲线程或拒绝时不会一直等待
+     * </p>
+     * @return
+     */
+    default int maxParallelBatches() {
+        return 4;
+    }
+
+    /**
+     * 并发处理时是否在虚拟线程中执行{@link ExcelUploadService#handle}，默认否
+     *
+     * <p>
+     *     适用于handle以阻塞的RPC、数据库调用为主的场景，并发度不再受平台线程池大小限制.
+     *     需要JDK 21及以上，低版本JDK自动使用原线程池. 开启后通常需要同时调大{@link ExcelUploadService#maxParallelBatches()}，
+     *     同一服务所有任务同时执行的批次数由{@link ExcelUploadService#maxConcurrentHandles()}限制，避免压垮下游服务
+     * </p>
+     * @return
+     */
+    default boolean virtualThreads() {
+        return false;
+    }
+
+    /**
+     * 虚拟线程执行时，同一服务所有任务同时执行handle的最大批次数，默认64
+     * @return
+     */
+    default int maxConcurrentHandles() {
+        return 64;
+    }
+
+    /**
+     * 单批次{@link ExcelUploadService#handle}抛出临时异常时的重试次数，默认0不重试
+     *
+     * <p>
+     *     重试间隔从{@link ExcelUploadService#handleRetryBackoffMillis()}开始每次翻倍，最长10秒.
+     *     是否为临时异常由{@link ExcelUploadService#isTransientError}判断
+     * </p>
+     * @return
+     */
+    default int handleRetries() {
+        return 0;
+    }
+
+    /**
+     * 首次重试前的等待时间，毫秒，默认200
+     * @return
+     */
+    default long handleRetryBackoffMillis() {
+        return 200L;
+    }
+
+    /**
+     * 是否为可以重试的临时异常，默认业务异常{@link AppException}不重试，其他异常重试
+     * @param e
+     * @return
+     */
+    default boolean isTransientError(Exception e) {
+        return !(e instanceof AppException);
+    }
+
+    /**
+     * 批次处理失败（重试后仍失败）时是否拆分批次定位失败的行，默认否
+     *
+     * <p>
+     *     开启后失败的批次二分后分别调用handle，直到定位到单行，只有失败的行添加到失败列表，原因为异常信息，
+     *     其余行仍然批量处理成功. 要求handle抛异常时整批不生效（如在事务中处理），否则拆分重试可能重复处理
+     * </p>
+     * @return
+     */
+    default boolean splitFailedBatch() {
+        return false;
+    }
+
+    /**
+     * 是否自适应调整分片大小，默认否
+     *
+     * <p>
+     *     开启后以{@link ExcelUploadService#partSize}为初始值，根据每批{@link ExcelUploadService#handle}的耗时和异常
+     *     调整下一批的大小：处理异常时减半，吞吐量下降时缩小，否则逐步增大，
+     *     大小限制在{@link ExcelUploadService#minPartSize}和{@link ExcelUploadService#maxPartSize}之间.
+     *     各批次的大小记录在任务进度的统计信息中
+     * </p>
+     * @return
+     */
+    default boolean adaptivePartSize() {
+        return false;
+    }
+
+    /**
+     * 自适应分片的最小值，默认partSize的1/4
+     * @return
+     */
+    default int minPartSize() {
+        return Math.max(1, partSize() / 4);
+    }
+
+    /**
+     * 自适应分片的最大值，默认partSize的4倍
+     * @return
+     */
+    default int maxPartSize() {
+        return partSize() * 4;
+    }
+
     /**
      * excel最大允许上传的行数
      * @return
@@ -0,0 +1,186 @@
+package com.easy.framework.excel.service.upload;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import com.easy.framework.core.exception.ServiceException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.BiPredicate;
+
+/**
+ * 基于临时文件的外部去重
+ *
+ * <p>
+ *     每行的去重key指纹和行序号按指纹哈希分区写入{@link ExternalDuplicateDetector#PARTITIONS}个临时文件，
+ *     写入完成后逐个分区读入内存检测重复，同一key的所有行必然在同一个分区中.
+ *     堆内存只保存写缓冲、一个分区的数据和检测结果，与总行数基本无关，适用于数百万行的大文件.
+ *     重复判定规则与{@link DuplicateDetector}一致，首次出现的行和之后重复出现的行都会被标记
+ * </p>
+ *
+ * @author xiongzhao
+ * @date 2021/9/4
+ */
+final class ExternalDuplicateDetector implements Closeable {
+
+    /**
+     * 分区数
+     */
+    private static final int PARTITIONS = 64;
+
+    /**
+     * 每条记录的字节数：指纹高64位、低64位、行序号
+     */
+    private static final int RECORD_BYTES = 20;
+
+    /**
+     * 每个分区的写缓冲大小
+     */
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * 临时目录
+     */
+    private final File dir;
+
+    /**
+     * 分区文件
+     */
+    private final File[] files = new File[PARTITIONS];
+
+    /**
+     * 分区文件输出流，首次写入时创建
+     */
+    private final DataOutputStream[] outs = new DataOutputStream[PARTITIONS];
+
+    ExternalDuplicateDetector() {
+        try {
+            this.dir = Files.createTempDirectory("easy-excel-dedup-").toFile();
+        } catch (IOException e) {
+            throw new ServiceException("创建去重临时目录失败，" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 检测列表中重复的行
+     * @param list
+     * @param fingerprint 去重key的指纹
+     * @param <T>
+     * @return 重复的行的下标
+     */
+    static <T> BitSet detect(List<T> list, KeyFingerprint<T> fingerprint) {
+        List<T> rows = list instanceof RandomAccess ? list : new ArrayList<>(list);
+        try (ExternalDuplicateDetector detector = new ExternalDuplicateDetector()) {
+            for (int i = 0; i < rows.size(); i++) {
+                if (fingerprint.compute(rows.get(i))) {
+                    detector.add(fingerprint.high(), fingerprint.low(), i);
+                }
+            }
+            return detector.resolve(null, (a, b) -> fingerprint.sameKey(rows.get(a), rows.get(b)));
+        }
+    }
+
+    /**
+     * 写入一行的指纹，支持并发写入
+     * @param high 指纹高64位，不为0
+     * @param low 指纹低64位
+     * @param ordinal 行序号，不需要行序号时传-1
+     */
+    synchronized void add(long high, long low, int ordinal) {
+        int partition = (int) (low >>> 58);
+        try {
+            DataOutputStream out = outs[partition];
+            if (out == null) {
+                files[partition] = new File(dir, String.valueOf(partition));
+                out = outs[partition] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(files[partition]), BUFFER_SIZE));
+            }
+            out.writeLong(high);
+            out.writeLong(low);
+            out.writeInt(ordinal);
+        } catch (IOException e) {
+            throw new ServiceException("写入去重临时文件失败，" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 逐个分区检测重复
+     * @param duplicateKeys 用于接收重复key的指纹，可以为空
+     * @param sameKey 指纹相同时根据行序号确认两行的key是否相同，为空时只比较指纹
+     * @return 重复的行序号
+     */
+    synchronized BitSet resolve(FingerprintSet duplicateKeys, BiPredicate<Integer, Integer> sameKey) {
+        BitSet duplicated = new BitSet();
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            if (outs[partition] == null) {
+                continue;
+            }
+            try {
+                outs[partition].close();
+                outs[partition] = null;
+                resolvePartition(files[partition], duplicated, duplicateKeys, sameKey);
+            } catch (IOException e) {
+                throw new ServiceException("读取去重临时文件失败，" + e.getMessage(), e);
+            } finally {
+                FileUtil.del(files[partition]);
+            }
+        }
+        return duplicated;
+    }
+
+    private static void resolvePartition(File file, BitSet duplicated, FingerprintSet duplicateKeys,
+                                         BiPredicate<Integer, Integer> sameKey) throws IOException {
+        int n = (int) (file.length() / RECORD_BYTES);
+        int capacity = Integer.highestOneBit(Math.max(n, 8) * 2 - 1) << 1;
+        int mask = capacity - 1;
+        long[] highs = new long[capacity];
+        long[] lows = new long[capacity];
+        int[] ordinals = new int[capacity];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+            for (int i = 0; i < n; i++) {
+                long high = in.readLong();
+                long low = in.readLong();
+                int ordinal = in.readInt();
+                int slot = FingerprintSet.slot(high) & mask;
+                while (highs[slot] != 0) {
+                    if (highs[slot] == high && lows[slot] == low
+                            && (sameKey == null || sameKey.test(ordinals[slot], ordinal))) {
+                        if (ordinal >= 0) {
+                            duplicated.set(ordinals[slot]);
+                            duplicated.set(ordinal);
+                        }
+                        if (duplicateKeys != null) {
+                            duplicateKeys.add(high, low);
+                        }
+                        break;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                if (highs[slot] == 0) {
+                    highs[slot] = high;
+                    lows[slot] = low;
+                    ordinals[slot] = ordinal;
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        for (DataOutputStream out : outs) {
+            IoUtil.close(out);
+        }
+        FileUtil.del(dir);
+    }
+}
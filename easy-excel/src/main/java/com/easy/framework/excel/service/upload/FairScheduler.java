@@ -0,0 +1,129 @@
+package com.easy.framework.excel.service.upload;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 公平调度，多个任务共用线程池时按任务轮询分配执行槽位
+ *
+ * <p>
+ *     每个任务一个等待队列，同时交给线程池执行的批次数不超过槽位数（线程池的核心线程数），
+ *     有空闲槽位时按任务轮流取出批次，每个活跃任务分到相同的份额. 大任务的批次不会一次占满线程池队列，
+ *     后提交的小任务只需等待一轮即可开始执行. 同一任务的批次按提交顺序执行.
+ *     线程池只用于执行批次，槽位数不包含等待批次结果的上传任务线程.
+ *     线程池拒绝时释放槽位，批次交回提交它的任务，由{@link BatchExecutor#help()}在该任务的线程中执行，不在其他任务的线程中执行
+ * </p>
+ *
+ * @author xiongzhao
+ * @date 2021/10/9
+ */
+final class FairScheduler {
+
+    /**
+     * 非ThreadPoolExecutor时的默认槽位数
+     */
+    private static final int DEFAULT_SLOTS = 4;
+
+    /**
+     * 各任务等待执行的批次
+     */
+    private final Map<String, Deque<Runnable>> queues = new HashMap<>();
+
+    /**
+     * 有等待批次的任务，轮询顺序
+     */
+    private final Deque<String> ring = new ArrayDeque<>();
+
+    /**
+     * 执行中的批次数
+     */
+    private int running;
+
+    /**
+     * 指定任务的执行器
+     * @param executor 实际执行的线程池
+     * @param key 任务标识
+     * @return
+     */
+    Executor executor(ExecutorService executor, String key) {
+        return command -> submit(executor, key, command);
+    }
+
+    private void submit(ExecutorService executor, String key, Runnable command) {
+        List<Runnable> ready;
+        synchronized (this) {
+            Deque<Runnable> queue = queues.get(key);
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                queues.put(key, queue);
+                ring.add(key);
+            }
+            queue.add(command);
+            ready = poll(executor);
+        }
+        start(executor, ready);
+    }
+
+    /**
+     * 按任务轮询取出可以执行的批次
+     */
+    private List<Runnable> poll(ExecutorService executor) {
+        int slots = executor instanceof ThreadPoolExecutor
+                ? Math.max(1, ((ThreadPoolExecutor) executor).getCorePoolSize()) : DEFAULT_SLOTS;
+        List<Runnable> ready = new ArrayList<>();
+        while (running < slots && !ring.isEmpty()) {
+            String key = ring.poll();
+            Deque<Runnable> queue = queues.get(key);
+            ready.add(queue.poll());
+            running++;
+            if (queue.isEmpty()) {
+                queues.remove(key);
+            } else {
+                ring.add(key);
+            }
+        }
+        return ready;
+    }
+
+    private void start(ExecutorService executor, List<Runnable> ready) {
+        for (Runnable command : ready) {
+            Runnable task = () -> {
+                try {
+                    command.run();
+                } finally {
+                    complete(executor);
+                }
+            };
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // 批次仍在提交任务的BatchExecutor中，由该任务等待结果时执行
+                release();
+            }
+        }
+    }
+
+    /**
+     * 释放被拒绝的批次占用的槽位
+     */
+    private synchronized void release() {
+        running--;
+    }
+
+    private void complete(ExecutorService executor) {
+        List<Runnable> ready;
+        synchronized (this) {
+            running--;
+            ready = poll(executor);
+        }
+        start(executor, ready);
+    }
+}
@@ -0,0 +1,131 @@
+package com.easy.framework.excel.service.upload;
+
+/**
+ * 128位指纹的开放寻址集合
+ *
+ * <p>
+ *     指纹保存在两个long数组中，每个元素占用16字节，负载因子0.5，不产生包装对象.
+ *     高64位为0表示空槽，{@link KeyFingerprint}保证高64位不为0. 非线程安全
+ * </p>
+ *
+ * @author xiongzhao
+ * @date 2021/8/21
+ */
+final class FingerprintSet {
+
+    /**
+     * 指纹高64位
+     */
+    private long[] highs;
+
+    /**
+     * 指纹低64位
+     */
+    private long[] lows;
+
+    /**
+     * 元素个数
+     */
+    private int size;
+
+    FingerprintSet() {
+        this(16);
+    }
+
+    FingerprintSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+        highs = new long[capacity];
+        lows = new long[capacity];
+    }
+
+    /**
+     * 添加指纹
+     * @param high 高64位，不为0
+     * @param low 低64位
+     * @return 已存在时返回false
+     */
+    boolean add(long high, long low) {
+        int mask = highs.length - 1;
+        int slot = slot(high) & mask;
+        while (highs[slot] != 0) {
+            if (highs[slot] == high && lows[slot] == low) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        highs[slot] = high;
+        lows[slot] = low;
+        if (++size * 2 > highs.length) {
+            grow();
+        }
+        return true;
+    }
+
+    /**
+     * 是否包含指纹
+     * @param high
+     * @param low
+     * @return
+     */
+    boolean contains(long high, long low) {
+        int mask = highs.length - 1;
+        int slot = slot(high) & mask;
+        while (highs[slot] != 0) {
+            if (highs[slot] == high && lows[slot] == low) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * 将other中的指纹合并到当前集合，已存在的指纹添加到duplicates
+     * @param other
+     * @param duplicates
+     */
+    void merge(FingerprintSet other, FingerprintSet duplicates) {
+        for (int i = 0; i < other.highs.length; i++) {
+            if (other.highs[i] != 0 && !add(other.highs[i], other.lows[i])) {
+                duplicates.add(other.highs[i], other.lows[i]);
+            }
+        }
+    }
+
+    /**
+     * 添加other中的全部指纹
+     * @param other
+     */
+    void addAll(FingerprintSet other) {
+        for (int i = 0; i < other.highs.length; i++) {
+            if (other.highs[i] != 0) {
+                add(other.highs[i], other.lows[i]);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void grow() {
+        long[] oldHighs = highs;
+        long[] oldLows = lows;
+        highs = new long[oldHighs.length * 2];
+        lows = new long[oldLows.length * 2];
+        size = 0;
+        for (int i = 0; i < oldHighs.length; i++) {
+            if (oldHighs[i] != 0) {
+                add(oldHighs[i], oldLows[i]);
+            }
+        }
+    }
+
+    static int slot(long high) {
+        return (int) (high ^ (high >>> 32));
+    }
+}
@@ -0,0 +1,136 @@
+package com.easy.framework.excel.service.upload;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * 去重key的128位指纹
+ *
+ * <p>
+ *     依次对每个去重字段的值计算两个独立的64位哈希，字段之间混入长度，不拼接字符串.
+ *     字符串字段直接在去掉首尾空白后的字符上计算，其他类型使用toString后的值，与单字段去重的比较规则一致.
+ *     计算结果保存在实例中，实例不是线程安全的，每个线程单独创建
+ * </p>
+ *
+ * @param <T> excel行数据对应的java对象
+ *
+ * @author xiongzhao
+ * @date 2021/8/21
+ */
+final class KeyFingerprint<T> {
+
+    private static final long P1 = 0x100000001B3L;
+
+    private static final long P2 = 0x9E3779B97F4A7C15L;
+
+    private static final long P3 = 0xC2B2AE3D27D4EB4FL;
+
+    /**
+     * 去重字段
+     */
+    private final List<Function<T, Object>> columns;
+
+    /**
+     * 指纹高64位，不为0
+     */
+    private long high;
+
+    /**
+     * 指纹低64位
+     */
+    private long low;
+
+    KeyFingerprint(List<Function<T, Object>> columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * 计算指纹
+     * @param item
+     * @return 任一去重字段为空时返回false，不参与去重
+     */
+    boolean compute(T item) {
+        long h1 = 0xCBF29CE484222325L;
+        long h2 = 0x84222325CBF29CE4L;
+        for (Function<T, Object> column : columns) {
+            Object v = column.apply(item);
+            if (v == null || (v instanceof String && StringUtils.isBlank((String) v))) {
+                return false;
+            }
+            String s = v.toString();
+            int begin = 0;
+            int end = s.length();
+            while (begin < end && s.charAt(begin) <= ' ') {
+                begin++;
+            }
+            while (end > begin && s.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            for (int i = begin; i < end; i++) {
+                char c = s.charAt(i);
+                h1 = (h1 ^ c) * P1;
+                h2 = (h2 + c) * P2;
+            }
+            // 混入字段长度作为分隔，避免("ab", "c")与("a", "bc")相同
+            int length = end - begin;
+            h1 = (h1 ^ length) * P3;
+            h2 = Long.rotateLeft(h2 ^ length, 29) * P1;
+        }
+        high = mix(h1 ^ Long.rotateLeft(h2, 17));
+        low = mix(h2 + h1 * P2);
+        if (high == 0) {
+            high = 1;
+        }
+        return true;
+    }
+
+    /**
+     * 指纹高64位，不为0
+     * @return
+     */
+    long high() {
+        return high;
+    }
+
+    /**
+     * 指纹低64位
+     * @return
+     */
+    long low() {
+        return low;
+    }
+
+    /**
+     * 两行的去重字段是否完全相同，指纹相同时用于确认
+     * @param a
+     * @param b
+     * @return
+     */
+    boolean sameKey(T a, T b) {
+        for (Function<T, Object> column : columns) {
+            if (!Objects.equals(normalize(column.apply(a)), normalize(column.apply(b)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String normalize(Object v) {
+        return v == null ? null : v.toString().trim();
+    }
+
+    /**
+     * murmur3的64位终结函数
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= P3;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,193 @@
+package com.easy.framework.excel.service.upload;
+
+import com.easy.framework.core.exception.ServiceException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 多阶段流水线
+ *
+ * <p>
+ *     每个阶段和最后的消费者各使用一个线程，阶段之间通过有界队列连接，上游阶段处理下一个元素时下游阶段可以同时处理上一个元素，
+ *     总耗时接近最慢的阶段而不是各阶段之和. 队列满时上游阻塞，同时在途的元素数有上限.
+ *     阶段返回null表示丢弃该元素. 任一阶段异常后其余元素不再处理，{@link StagePipeline#put}和{@link StagePipeline#finish}抛出该异常
+ * </p>
+ *
+ * @param <E> 元素类型
+ *
+ * @author xiongzhao
+ * @date 2021/9/18
+ */
+final class StagePipeline<E> implements AutoCloseable {
+
+    /**
+     * 结束标记
+     */
+    private static final Object END = new Object();
+
+    /**
+     * 各阶段的输入队列，最后一个为消费者的输入队列
+     */
+    private final List<BlockingQueue<Object>> queues = new ArrayList<>();
+
+    /**
+     * 阶段线程
+     */
+    private final ExecutorService workers;
+
+    /**
+     * 阶段任务
+     */
+    private final List<Future<?>> futures = new ArrayList<>();
+
+    /**
+     * 首个异常
+     */
+    private volatile Throwable failure;
+
+    /**
+     * 是否已关闭，关闭后剩余的元素不再处理
+     */
+    private volatile boolean closed;
+
+    /**
+     * 创建并启动流水线
+     * @param name 线程名前缀
+     * @param stages 处理阶段
+     * @param sink 消费者
+     * @param queueSize 每个队列的容量
+     */
+    StagePipeline(String name, List<Function<E, E>> stages, Consumer<E> sink, int queueSize) {
+        AtomicInteger threadNo = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(stages.size() + 1, r -> {
+            Thread thread = new Thread(r, name + "-" + threadNo.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i <= stages.size(); i++) {
+            queues.add(new ArrayBlockingQueue<>(queueSize));
+        }
+        for (int i = 0; i < stages.size(); i++) {
+            Function<E, E> stage = stages.get(i);
+            BlockingQueue<Object> input = queues.get(i);
+            BlockingQueue<Object> next = queues.get(i + 1);
+            futures.add(workers.submit(() -> work(input, element -> {
+                E result = stage.apply(element);
+                if (result != null) {
+                    next.put(result);
+                }
+            }, next)));
+        }
+        BlockingQueue<Object> input = queues.get(stages.size());
+        futures.add(workers.submit(() -> work(input, sink::accept, null)));
+    }
+
+    /**
+     * 放入一个元素，队列满时阻塞
+     * @param element
+     * @throws InterruptedException
+     */
+    void put(E element) throws InterruptedException {
+        rethrow();
+        queues.get(0).put(element);
+    }
+
+    /**
+     * 结束输入，等待所有元素处理完成
+     * @throws InterruptedException
+     */
+    void finish() throws InterruptedException {
+        queues.get(0).put(END);
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                fail(e.getCause());
+            }
+        }
+        rethrow();
+    }
+
+    /**
+     * 关闭流水线，不再处理剩余的元素，等待处理中的元素完成后返回，不中断处理中的元素
+     */
+    @Override
+    public void close() {
+        closed = true;
+        workers.shutdown();
+        try {
+            if (!futures.stream().allMatch(Future::isDone)) {
+                // 阶段线程跳过剩余的元素，收到结束标记后退出
+                queues.get(0).put(END);
+            }
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Void work(BlockingQueue<Object> queue, Handler<E> handler, BlockingQueue<Object> next) throws InterruptedException {
+        while (true) {
+            Object element = queue.take();
+            if (element == END) {
+                if (next != null) {
+                    next.put(END);
+                }
+                return null;
+            }
+            // 出现异常或关闭后只消费不处理，避免上游阻塞
+            if (failure != null || closed) {
+                continue;
+            }
+            // 队列中除结束标记外只有put和上游阶段放入的E类型元素
+            @SuppressWarnings("unchecked")
+            E item = (E) element;
+            try {
+                handler.handle(item);
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Throwable e) {
+                fail(e);
+            }
+        }
+    }
+
+    private synchronized void fail(Throwable e) {
+        if (failure == null) {
+            failure = e;
+        }
+    }
+
+    private void rethrow() {
+        Throwable e = failure;
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        if (e != null) {
+            throw new ServiceException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 元素处理
+     */
+    private interface Handler<E> {
+
+        void handle(E element) throws InterruptedException;
+    }
+}
@@ -0,0 +1,54 @@
+package com.easy.framework.excel.service.upload;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 虚拟线程支持
+ *
+ * <p>
+ *     通过反射调用JDK 21的{@code Executors.newVirtualThreadPerTaskExecutor()}，保持Java 8编译和运行兼容，
+ *     低版本JDK上{@link VirtualThreads#executor()}返回null. 线程池为全局共享，每个任务一个虚拟线程，不需要关闭
+ * </p>
+ *
+ * @author xiongzhao
+ * @date 2021/10/2
+ */
+@Slf4j
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * 虚拟线程池，延迟加载
+     */
+    private static class Holder {
+
+        private static final ExecutorService EXECUTOR = create();
+
+        private static ExecutorService create() {
+            try {
+                Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) method.invoke(null);
+            } catch (NoSuchMethodException e) {
+                log.info("当前JDK不支持虚拟线程，业务处理使用平台线程池，java.version={}", System.getProperty("java.version"));
+                return null;
+            } catch (Exception e) {
+                log.warn("创建虚拟线程池失败，业务处理使用平台线程池，" + e.getMessage(), e);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 虚拟线程池，不支持时返回null
+     * @return
+     */
+    static ExecutorService executor() {
+        return Holder.EXECUTOR;
+    }
+}
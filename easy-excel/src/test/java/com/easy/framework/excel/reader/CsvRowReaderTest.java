@@ -0,0 +1,94 @@
+package com.easy.framework.excel.reader;
+
+import cn.hutool.core.io.FileUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * csv读取器测试
+ *
+ * @author xiongzhao
+ * @date 2021/10/19
+ */
+public class CsvRowReaderTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("csv-row-reader-", ".csv");
+    }
+
+    @After
+    public void tearDown() {
+        FileUtil.del(file);
+    }
+
+    @Test
+    public void readQuotedFields() {
+        String csv = "\uFEFF名称,年龄,备注,未映射\r\n"
+                + "张三,18,普通,x\r\n"
+                + "\"李,四\",20,\"含\"\"引号\"\"\",x\n"
+                + "\r\n"
+                + "王五,,\"跨\n行\",x\n"
+                + "赵六,abc,,x";
+        FileUtil.writeString(csv, file, StandardCharsets.UTF_8);
+
+        try (CsvRowReader<TestRow> reader = newReader(100)) {
+            assertEquals(4, reader.count());
+            List<TestRow> rows = reader.readAll();
+            assertEquals(4, rows.size());
+            assertRow(rows.get(0), "张三", 18, "普通");
+            assertRow(rows.get(1), "李,四", 20, "含\"引号\"");
+            assertRow(rows.get(2), "王五", null, "跨\n行");
+            // 类型转换失败的字段为空
+            assertRow(rows.get(3), "赵六", null, null);
+            // 可以重复读取
+            assertEquals(4, reader.readAll().size());
+        }
+    }
+
+    @Test
+    public void estimateStopsAtLimit() {
+        StringBuilder csv = new StringBuilder("名称,年龄\n");
+        for (int i = 0; i < 1000; i++) {
+            csv.append("name").append(i).append(',').append(i).append('\n');
+        }
+        FileUtil.writeString(csv.toString(), file, StandardCharsets.UTF_8);
+
+        try (CsvRowReader<TestRow> reader = newReader(10000)) {
+            assertEquals(1000, reader.estimate(10000));
+            assertEquals(101, reader.estimate(100));
+            assertEquals(1000, reader.count());
+        }
+    }
+
+    private CsvRowReader<TestRow> newReader(int maxSize) {
+        Map<String, String> headerAlias = new HashMap<>();
+        headerAlias.put("名称", "name");
+        headerAlias.put("年龄", "age");
+        headerAlias.put("备注", "remark");
+        return new CsvRowReader<>(file, StandardCharsets.UTF_8, BeanRowMapper.create(TestRow.class), headerAlias, maxSize);
+    }
+
+    static void assertRow(TestRow row, String name, Integer age, String remark) {
+        assertEquals(name, row.getName());
+        assertEquals(age, row.getAge());
+        if (remark == null) {
+            assertNull(row.getRemark());
+        } else {
+            assertEquals(remark, row.getRemark());
+        }
+    }
+}
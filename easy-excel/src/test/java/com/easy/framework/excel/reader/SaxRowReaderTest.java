@@ -0,0 +1,94 @@
+package com.easy.framework.excel.reader;
+
+import cn.hutool.core.io.FileUtil;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.easy.framework.excel.reader.CsvRowReaderTest.assertRow;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 事件模式读取器测试
+ *
+ * @author xiongzhao
+ * @date 2021/10/19
+ */
+public class SaxRowReaderTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("sax-row-reader-", ".xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = new FileOutputStream(file)) {
+            for (int s = 0; s < 2; s++) {
+                Sheet sheet = workbook.createSheet("sheet" + s);
+                Row header = sheet.createRow(0);
+                header.createCell(0).setCellValue("名称");
+                header.createCell(1).setCellValue("年龄");
+                header.createCell(2).setCellValue("备注");
+                for (int i = 1; i <= 100; i++) {
+                    Row row = sheet.createRow(i);
+                    row.createCell(0).setCellValue("s" + s + "-" + i);
+                    row.createCell(1).setCellValue(i);
+                    // 相同的备注使用共享字符串
+                    row.createCell(2).setCellValue(i % 2 == 0 ? "偶数" : "奇数");
+                }
+                // 空行不计数
+                sheet.createRow(101);
+            }
+            workbook.write(out);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        FileUtil.del(file);
+    }
+
+    @Test
+    public void readSheets() {
+        try (ExcelSaxReader saxReader = new ExcelSaxReader(file)) {
+            assertEquals(2, saxReader.getSheetCount());
+            for (int s = 0; s < 2; s++) {
+                SaxRowReader<TestRow> reader = new SaxRowReader<>(saxReader, BeanRowMapper.create(TestRow.class), headerAlias(), 1000, s);
+                assertEquals(100, reader.count());
+                List<TestRow> rows = reader.readAll();
+                assertEquals(100, rows.size());
+                assertRow(rows.get(0), "s" + s + "-1", 1, "奇数");
+                assertRow(rows.get(99), "s" + s + "-100", 100, "偶数");
+            }
+        }
+    }
+
+    @Test
+    public void readWithDiskSharedStrings() {
+        try (ExcelSaxReader saxReader = new ExcelSaxReader(file)) {
+            saxReader.setDiskSharedStrings(true);
+            SaxRowReader<TestRow> reader = new SaxRowReader<>(saxReader, BeanRowMapper.create(TestRow.class), headerAlias(), 1000);
+            List<TestRow> rows = reader.readAll();
+            assertEquals(100, rows.size());
+            assertRow(rows.get(1), "s0-2", 2, "偶数");
+        }
+    }
+
+    private static Map<String, String> headerAlias() {
+        Map<String, String> headerAlias = new HashMap<>();
+        headerAlias.put("名称", "name");
+        headerAlias.put("年龄", "age");
+        headerAlias.put("备注", "remark");
+        return headerAlias;
+    }
+}
@@ -0,0 +1,34 @@
+package com.easy.framework.excel.reader;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+/**
+ * 读取器测试使用的行数据
+ *
+ * @author xiongzhao
+ * @date 2021/10/19
+ */
+@Setter
+@Getter
+@ToString
+@Accessors(chain = true)
+public class TestRow {
+
+    /**
+     * 名称
+     */
+    private String name;
+
+    /**
+     * 年龄
+     */
+    private Integer age;
+
+    /**
+     * 备注
+     */
+    private String remark;
+}
@@ -0,0 +1,72 @@
+package com.easy.framework.excel.service.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 测试用的内存缓存，不处理过期时间，需要模拟过期时直接删除key
+ *
+ * @author xiongzhao
+ * @date 2021/10/19
+ */
+public class MemoryCacheService implements CacheService {
+
+    private final Map<String, String> values = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<String>> sets = new ConcurrentHashMap<>();
+
+    @Override
+    public void setEx(String key, String value, long times, TimeUnit timeUnit) {
+        values.put(key, value);
+    }
+
+    @Override
+    public String get(String key) {
+        return values.get(key);
+    }
+
+    @Override
+    public boolean sAdd(String key, List<String> values, long times, TimeUnit timeUnit) {
+        return sets.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).addAll(values);
+    }
+
+    @Override
+    public List<String> sMembers(String key) {
+        return new ArrayList<>(sets.getOrDefault(key, Collections.emptySet()));
+    }
+
+    @Override
+    public boolean setNX(String key, String value, long times, TimeUnit timeUnit) {
+        return values.putIfAbsent(key, value) == null;
+    }
+
+    @Override
+    public boolean del(String key) {
+        return values.remove(key) != null | sets.remove(key) != null;
+    }
+
+    /**
+     * 是否存在key
+     * @param key
+     * @return
+     */
+    public boolean exists(String key) {
+        return values.containsKey(key) || sets.containsKey(key);
+    }
+
+    /**
+     * 以prefix开头的集合key
+     * @param prefix
+     * @return
+     */
+    public List<String> setKeys(String prefix) {
+        List<String> keys = new ArrayList<>();
+        sets.keySet().stream().filter(key -> key.startsWith(prefix)).forEach(keys::add);
+        return keys;
+    }
+}
@@ -0,0 +1,100 @@
+package com.easy.framework.excel.service.upload;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 批次执行器测试
+ *
+ * @author xiongzhao
+ * @date 2021/10/19
+ */
+public class BatchExecutorTest {
+
+    /**
+     * 上传任务占用线程池唯一的线程等待自己的批次，批次由上传任务的线程执行
+     */
+    @Test(timeout = 10_000L)
+    public void helpRunsPendingBatchesWithoutDeadlock() throws Exception {
+        ExecutorService pool = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        try {
+            Future<Integer> upload = pool.submit(() -> {
+                BatchExecutor batches = new BatchExecutor(pool, true);
+                CompletionService<Integer> completion = new ExecutorCompletionService<>(batches);
+                for (int i = 0; i < 5; i++) {
+                    int n = i;
+                    completion.submit(() -> n);
+                }
+                int sum = 0;
+                for (int i = 0; i < 5; i++) {
+                    Future<Integer> future;
+                    while ((future = completion.poll()) == null) {
+                        assertTrue(batches.help());
+                    }
+                    sum += future.get();
+                }
+                assertFalse(batches.help());
+                return sum;
+            });
+            assertEquals(Integer.valueOf(10), upload.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * 线程池拒绝的批次留给提交批次的线程执行
+     */
+    @Test(timeout = 10_000L)
+    public void rejectedBatchesRunOnSubmitter() throws Exception {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new SynchronousQueue<>());
+        try {
+            // 占满线程池
+            CountDownLatch release = new CountDownLatch(1);
+            pool.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            List<Thread> threads = new CopyOnWriteArrayList<>();
+            BatchExecutor batches = new BatchExecutor(pool, true);
+            CompletionService<Integer> completion = new ExecutorCompletionService<>(batches);
+            completion.submit(() -> {
+                threads.add(Thread.currentThread());
+                return 1;
+            });
+            // 拒绝时不在execute中执行
+            assertTrue(threads.isEmpty());
+            assertTrue(batches.help());
+            assertEquals(Integer.valueOf(1), completion.take().get());
+            assertEquals(Thread.currentThread(), threads.get(0));
+
+            // 不允许提交批次的线程执行时，拒绝后直接执行
+            AtomicInteger ran = new AtomicInteger();
+            new BatchExecutor(pool, false).execute(ran::incrementAndGet);
+            assertEquals(1, ran.get());
+            release.countDown();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.easy.framework.excel.service.upload;
+
+import cn.hutool.core.io.FileUtil;
+import com.easy.framework.excel.domain.common.Task;
+import com.easy.framework.excel.domain.upload.UploadContext;
+import com.easy.framework.excel.service.common.MemoryCacheService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.easy.framework.excel.constant.CacheConstant.UPLOAD_EXCEL_CHECKPOINT;
+import static com.easy.framework.excel.constant.CacheConstant.UPLOAD_EXCEL_CHECKPOINT_FAILS;
+import static com.easy.framework.excel.constant.CacheConstant.UPLOAD_EXCEL_HEARTBEAT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 检查点测试，模拟节点在业务处理中途停止后续传
+ *
+ * @author xiongzhao
+ * @date 2021/10/19
+ */
+public class CheckpointerTest {
+
+    private static final int PART_SIZE = 10;
+
+    private MemoryCacheService cacheService;
+
+    private File localFile;
+
+    /**
+     * 从落盘文件读取的全部数据
+     */
+    private List<UploadRow> list;
+
+    /**
+     * 去重、校验和过滤之后的数据，跳过序号为5的倍数的行
+     */
+    private List<UploadRow> validList;
+
+    @Before
+    public void setUp() throws IOException {
+        cacheService = new MemoryCacheService();
+        localFile = File.createTempFile("checkpointer-", ".csv");
+        list = rows();
+        validList = list.stream().filter(row -> Integer.parseInt(row.getCode()) % 5 != 0).collect(Collectors.toList());
+    }
+
+    @After
+    public void tearDown() {
+        FileUtil.del(localFile);
+    }
+
+    @Test
+    public void resumeSkipsCompletedBatches() {
+        UploadContext<UploadRow> context = newContext();
+        String taskId = context.getTaskId();
+        Checkpointer<UploadRow> first = Checkpointer.create(cacheService, context, UploadRow.class, true, PART_SIZE);
+        List<List<UploadRow>> parts = first.begin(context, list, validList);
+        assertEquals(4, parts.size());
+
+        // 第0批完成并产生失败数据，第1批处理异常，第2批先于第1批完成，第3批未处理时节点停止
+        context.addFail(parts.get(0).get(0), "失败");
+        handle(context, first, parts.get(0), true);
+        handle(context, first, parts.get(1), false);
+        handle(context, first, parts.get(2), true);
+        first.release();
+        // 停止前写入了失败数据但没有记录检查点
+        String stale = String.format("%010d", 1) + "[{\"code\":\"stale\"}]";
+        cacheService.sAdd(UPLOAD_EXCEL_CHECKPOINT_FAILS + taskId, Collections.singletonList(stale), 1L, TimeUnit.DAYS);
+
+        Checkpointer<UploadRow> second = Checkpointer.load(cacheService, taskId, UploadRow.class);
+        assertNotNull(second);
+        assertTrue(second.isResumed());
+        assertTrue(second.claim());
+        UploadContext<UploadRow> resumed = newContext();
+        resumed.setTask(second.restartTask());
+        List<UploadRow> restored = second.restoreRows(rows());
+        assertEquals(codes(validList), codes(restored));
+
+        List<List<UploadRow>> pending = second.begin(resumed, list, restored);
+        assertEquals(2, pending.size());
+        assertEquals(codes(parts.get(1)), codes(pending.get(0)));
+        assertEquals(codes(parts.get(3)), codes(pending.get(1)));
+        // 处理异常的批次从进度中扣除，未记录检查点的失败数据不恢复
+        assertEquals(Integer.valueOf(20), resumed.getTask().getProcessedNums());
+        assertEquals(1, resumed.getFailList().size());
+        assertEquals("1", resumed.getFailList().get(0).getCode());
+        assertEquals(1, cacheService.setKeys(UPLOAD_EXCEL_CHECKPOINT_FAILS).size());
+
+        // 续传后产生新的失败数据，再次停止后续传，上次停止前写入的失败数据仍不会读取
+        resumed.addFail(pending.get(0).get(0), "失败");
+        handle(resumed, second, pending.get(0), true);
+        second.release();
+        Checkpointer<UploadRow> third = Checkpointer.load(cacheService, taskId, UploadRow.class);
+        assertTrue(third.claim());
+        UploadContext<UploadRow> again = newContext();
+        again.setTask(third.restartTask());
+        List<List<UploadRow>> rest = third.begin(again, list, third.restoreRows(list));
+        assertEquals(1, rest.size());
+        assertEquals(codes(parts.get(3)), codes(rest.get(0)));
+        assertEquals(Integer.valueOf(30), again.getTask().getProcessedNums());
+        assertEquals(codes(resumed.getFailList()), codes(again.getFailList()));
+        assertEquals(2, again.getFailList().size());
+
+        handle(again, third, rest.get(0), true);
+        assertEquals(Integer.valueOf(validList.size()), again.getTask().getProcessedNums());
+        third.clear();
+        assertFalse(cacheService.exists(UPLOAD_EXCEL_CHECKPOINT + taskId));
+        assertFalse(cacheService.exists(UPLOAD_EXCEL_HEARTBEAT + taskId));
+        assertTrue(cacheService.setKeys(UPLOAD_EXCEL_CHECKPOINT_FAILS).isEmpty());
+    }
+
+    @Test
+    public void claimAndDiscardWaitForHeartbeat() {
+        UploadContext<UploadRow> context = newContext();
+        String taskId = context.getTaskId();
+        Checkpointer<UploadRow> running = Checkpointer.create(cacheService, context, UploadRow.class, false, PART_SIZE);
+
+        assertFalse(Checkpointer.load(cacheService, taskId, UploadRow.class).claim());
+        assertFalse(Checkpointer.discard(cacheService, taskId));
+        assertTrue(localFile.exists());
+
+        running.release();
+        assertTrue(Checkpointer.discard(cacheService, taskId));
+        assertFalse(localFile.exists());
+        assertNull(Checkpointer.load(cacheService, taskId, UploadRow.class));
+        assertFalse(cacheService.exists(UPLOAD_EXCEL_HEARTBEAT + taskId));
+        assertFalse(Checkpointer.discard(cacheService, taskId));
+    }
+
+    @Test
+    public void abandonWhenRowsAreNotLocatable() {
+        UploadContext<UploadRow> context = newContext();
+        Checkpointer<UploadRow> checkpointer = Checkpointer.create(cacheService, context, UploadRow.class, false, PART_SIZE);
+        // 业务校验返回了新对象，无法记录数据行的序号
+        List<UploadRow> copies = validList.stream()
+                .map(row -> new UploadRow().setCode(row.getCode()))
+                .collect(Collectors.toList());
+
+        List<List<UploadRow>> parts = checkpointer.begin(context, list, copies);
+        assertEquals(4, parts.size());
+        assertSame(copies.get(0), parts.get(0).get(0));
+        assertFalse(checkpointer.isResumable());
+        assertFalse(cacheService.exists(UPLOAD_EXCEL_CHECKPOINT + context.getTaskId()));
+        checkpointer.clear();
+    }
+
+    /**
+     * 模拟业务处理一个批次，与上传服务一样先更新进度再记录检查点
+     */
+    private static void handle(UploadContext<UploadRow> context, Checkpointer<UploadRow> checkpointer,
+                               List<UploadRow> part, boolean completed) {
+        Task progress = context.getTask();
+        synchronized (progress) {
+            progress.addProgress(part.size());
+            progress.addSuccess(completed ? part.size() : 0);
+        }
+        if (completed) {
+            checkpointer.complete(context, part);
+        } else {
+            checkpointer.retry(part);
+        }
+    }
+
+    private UploadContext<UploadRow> newContext() {
+        UploadContext<UploadRow> context = new UploadContext<>("tester", null);
+        context.setLocalFile(localFile);
+        context.getTask().setTotal(list.size());
+        return context;
+    }
+
+    private static List<UploadRow> rows() {
+        List<UploadRow> rows = new ArrayList<>();
+        for (int i = 0; i < 45; i++) {
+            rows.add(new UploadRow().setCode(String.valueOf(i)).setName("name" + i));
+        }
+        return rows;
+    }
+
+    private static List<String> codes(List<UploadRow> rows) {
+        return rows.stream().map(UploadRow::getCode).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,72 @@
+package com.easy.framework.excel.service.upload;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 去重检测测试，内存检测与临时文件检测的结果一致
+ *
+ * @author xiongzhao
+ * @date 2021/10/19
+ */
+public class DuplicateDetectorTest {
+
+    @Test
+    public void detectDuplicatedRows() {
+        List<UploadRow> rows = Arrays.asList(
+                row("a", "1"),
+                row(" a ", "1"),
+                row("ab", "c"),
+                row("a", "bc"),
+                row(null, "1"),
+                row(null, "1"),
+                row("b", "2"),
+                row("a", "1"));
+        KeyFingerprint<UploadRow> fingerprint = fingerprint();
+
+        BitSet expected = new BitSet();
+        expected.set(0);
+        expected.set(1);
+        expected.set(7);
+        assertEquals(expected, DuplicateDetector.detect(rows, fingerprint));
+        assertEquals(expected, ExternalDuplicateDetector.detect(rows, fingerprint()));
+    }
+
+    @Test
+    public void spillToDiskMatchesInMemory() {
+        int size = 200_000;
+        List<UploadRow> rows = new ArrayList<>(size);
+        BitSet expected = new BitSet();
+        for (int i = 0; i < size; i++) {
+            // 每隔97行重复第i-1000行的key
+            if (i >= 1000 && i % 97 == 0) {
+                rows.add(row("code" + (i - 1000), "name" + (i - 1000)));
+                expected.set(i - 1000);
+                expected.set(i);
+            } else {
+                rows.add(row("code" + i, "name" + i));
+            }
+        }
+
+        BitSet inMemory = DuplicateDetector.detect(rows, fingerprint());
+        BitSet spilled = ExternalDuplicateDetector.detect(rows, fingerprint());
+        assertEquals(expected, inMemory);
+        assertEquals(inMemory, spilled);
+    }
+
+    private static KeyFingerprint<UploadRow> fingerprint() {
+        List<Function<UploadRow, Object>> columns = Arrays.asList(UploadRow::getCode, UploadRow::getName);
+        return new KeyFingerprint<>(columns);
+    }
+
+    private static UploadRow row(String code, String name) {
+        return new UploadRow().setCode(code).setName(name);
+    }
+}
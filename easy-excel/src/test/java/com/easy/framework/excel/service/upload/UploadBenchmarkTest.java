@@ -0,0 +1,206 @@
+package com.easy.framework.excel.service.upload;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.ReflectUtil;
+import com.easy.framework.excel.domain.common.Task;
+import com.easy.framework.excel.domain.upload.UploadContext;
+import com.easy.framework.excel.service.common.MemoryCacheService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * 50万行csv的端到端导入基准
+ *
+ * <p>
+ *     默认跳过，使用-Dbenchmark=true执行，分别统计列表处理、并发处理和流式处理的耗时和吞吐量.
+ *     每行有一个去重字段，每1000行有一行重复，业务处理只计数
+ * </p>
+ *
+ * @author xiongzhao
+ * @date 2021/10/19
+ */
+@Slf4j
+public class UploadBenchmarkTest {
+
+    private static final int ROWS = 500_000;
+
+    private static final int DUPLICATE_INTERVAL = 1000;
+
+    private static File file;
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+        file = File.createTempFile("upload-benchmark-", ".csv");
+        try (PrintWriter writer = new PrintWriter(file, StandardCharsets.UTF_8.name())) {
+            writer.println("编码,名称");
+            for (int i = 0; i < ROWS; i++) {
+                int code = i > 0 && i % DUPLICATE_INTERVAL == 0 ? i - 1 : i;
+                writer.append("code").print(code);
+                writer.append(",name").println(i);
+            }
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        FileUtil.del(file);
+    }
+
+    @Test
+    public void listSequential() {
+        run("列表处理", new BenchmarkService(false), false);
+    }
+
+    @Test
+    public void listParallel() {
+        run("并发处理", new BenchmarkService(false), true);
+    }
+
+    @Test
+    public void streaming() {
+        run("流式处理", new BenchmarkService(true), true);
+    }
+
+    private static void run(String name, BenchmarkService service, boolean isParallel) {
+        // 预热一次
+        execute(service, isParallel);
+        System.gc();
+        long start = System.nanoTime();
+        Task task = execute(service, isParallel);
+        long millis = (System.nanoTime() - start) / 1_000_000L;
+        Runtime runtime = Runtime.getRuntime();
+        log.info("{}：{}行，成功{}行，耗时{}毫秒，{}行/秒，堆内存{}MB", name, task.getTotal(), task.getSuccess(), millis,
+                ROWS * 1000L / Math.max(1L, millis), (runtime.totalMemory() - runtime.freeMemory()) >> 20);
+        // 重复的行首次出现和之后出现的都不处理
+        assertEquals(ROWS - (ROWS - 1) / DUPLICATE_INTERVAL * 2, task.getSuccess().intValue());
+    }
+
+    private static Task execute(BenchmarkService service, boolean isParallel) {
+        UploadContext<UploadRow> context = new UploadContext<>("benchmark", new FileMultipartFile(file));
+        service.execute(context, isParallel);
+        return service.getTask(context.getTaskId());
+    }
+
+    /**
+     * 基准使用的上传服务
+     */
+    public static class BenchmarkService extends AbstractExcelUploadService<UploadRow, UploadContext<UploadRow>>
+            implements ExcelUploadService<UploadRow, UploadContext<UploadRow>> {
+
+        private final boolean streaming;
+
+        BenchmarkService(boolean streaming) {
+            this.streaming = streaming;
+            ReflectUtil.setFieldValue(this, "cacheService", new MemoryCacheService());
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return streaming;
+        }
+
+        @Override
+        public Function<UploadRow, Object> deDuplicationKey() {
+            return UploadRow::getCode;
+        }
+
+        @Override
+        public List<UploadRow> filterList(List<UploadRow> list, UploadContext<UploadRow> context) {
+            return list;
+        }
+
+        @Override
+        public int handle(List<UploadRow> list, UploadContext<UploadRow> context) {
+            return list.size();
+        }
+
+        @Override
+        public LinkedHashMap<String, String> addHeaderAlias() {
+            LinkedHashMap<String, String> headerAlias = new LinkedHashMap<>();
+            headerAlias.put("code", "编码");
+            headerAlias.put("name", "名称");
+            return headerAlias;
+        }
+
+        @Override
+        public int partSize() {
+            return 1000;
+        }
+
+        @Override
+        public int getMaxSize() {
+            return ROWS;
+        }
+    }
+
+    /**
+     * 以本地文件作为上传内容
+     */
+    private static final class FileMultipartFile implements MultipartFile {
+
+        private final File file;
+
+        FileMultipartFile(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public String getName() {
+            return "file";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return file.getName();
+        }
+
+        @Override
+        public String getContentType() {
+            return "text/csv";
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return file.length() == 0;
+        }
+
+        @Override
+        public long getSize() {
+            return file.length();
+        }
+
+        @Override
+        public byte[] getBytes() throws IOException {
+            return Files.readAllBytes(file.toPath());
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new FileInputStream(file);
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            Files.copy(file.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.easy.framework.excel.service.upload;
+
+import com.easy.framework.excel.domain.upload.BaseRow;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+/**
+ * 上传测试使用的行数据
+ *
+ * @author xiongzhao
+ * @date 2021/10/19
+ */
+@Setter
+@Getter
+@ToString
+@Accessors(chain = true)
+public class UploadRow extends BaseRow {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 编码
+     */
+    private String code;
+
+    /**
+     * 名称
+     */
+    private String name;
+
+    @Override
+    public void validate() {
+    }
+}